@@ -1,11 +1,13 @@
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class AliGur {
     public static String fileName = "input01.txt";
     public static int n;
     public static int chosenMethod;
     public static int chosenGraph;
+    public static int chosenDistanceStore;
     public static long startTime;
     public static long endTime;
     public static long elapsedTime;
@@ -16,14 +18,46 @@ public class AliGur {
     public static double initialPheromoneDensity;
     public static int iterationCount;
     public static int antCount;
+    public static int threadCount;
+    public static int candidateCount;
+    public static boolean sparsePheromone;
+    public static int localSearch;
+    public static boolean localSearchAllAnts;
+    public static int plateauIterations;
+    public static long timeBudget;
+    public static double targetDistance;
+    public static double convergenceEntropy;
+    public static long seed;
+    public static int islandCount;
+    public static int migrationInterval;
+    public static double migrationBlend;
+    public static int metricsInterval;
+    public static int checkpointInterval;
+    public static String checkpointFile;
+    public static boolean resume;
+    public static String previousFileName;
+    public static boolean vectorKernels;
+    public static double powTolerance;
+    public static int liveFrameRate;
+    public static int liveEdgeCount;
+    public static double liveThreshold;
+    public static long cacheSize;
+    public static String cacheDirectory;
+    public static boolean cacheWarmStart;
+    public static String stopReason;
     public static double[][] weightMatrix;
-    public static double[][] pheromoneMatrix;
+    public static DistanceStore distances;
+    public static int[][] candidateLists;
     public static double bestDistance = Double.POSITIVE_INFINITY;
     public static double bruteBestDistance = Double.POSITIVE_INFINITY;
     public static ArrayList<Integer> bestPath = new ArrayList<>();
     public static ArrayList<Double> bestDistances = new ArrayList<>();
     public static ArrayList<double[]> coordinates = new ArrayList<>();
+    public static Colony colony;
     private static ArrayList<Integer> bruteBestPath = new ArrayList<>();
+    private static ResultCache.Result seedResult; // Cached tour that seeds the colonies, or null
+    private static final String[] METHOD_NAMES = {"Brute-Force Method", "Ant Colony Optimization",
+            "Held-Karp Dynamic Programming", "Branch and Bound"};
 
     /**
      * The main method of the program.
@@ -39,10 +73,19 @@ public class AliGur {
         StdDraw.enableDoubleBuffering(); // Enable double buffering for smoother graphics rendering
 
         loadData();
-        initializeWeightMatrix();
 
-        chosenMethod = 2; // Set the chosen method (1 for brute-force, 2 for ant colony optimization)
+        chosenMethod = 2; // Set the chosen method (1 for brute-force, 2 for ant colony optimization, 3 for Held-Karp dynamic programming, 4 for branch and bound)
         chosenGraph = 2; // Set the chosen graph type (1 for displaying the final path, 2 for displaying the pheromone graph)
+        cacheSize = 0; // Largest size in bytes of the on-disk cache of solved instances, which answers repeated solves at once (0 disables the cache)
+        cacheDirectory = "cache"; // Directory of the result cache
+        setHyperParameters(); // Every method needs the distance store, and the ACO values are part of its cache key
+
+        ResultCache cache = cacheSize > 0 ? new ResultCache(cacheDirectory, cacheSize) : null;
+        String solver = solverDescription();
+        if (cache != null && solver != null && showCachedResult(cache, solver)) {
+            return; // Solved before, so neither the distances nor a solver are needed
+        }
+        initializeWeightMatrix();
 
         if (chosenMethod == 1) {
             // If the brute-force method is chosen
@@ -57,19 +100,62 @@ public class AliGur {
             System.out.printf("Shortest Distance: %.5f%n", bruteBestDistance);
             System.out.println("Shortest Path: " + bruteBestPath);
             System.out.println("Time it takes to find the shortest path: " + (float) elapsedTime / 1000 + " seconds");
+            storeResult(cache, solver, bruteBestPath, bruteBestDistance, new ArrayList<>());
+        } else if (chosenMethod == 3) {
+            // If the Held-Karp method is chosen
+            HeldKarp heldKarp = new HeldKarp(distances);
+            startTime = System.currentTimeMillis();
+            heldKarp.solve(); // Fill the dynamic programming table to find the shortest path
+            endTime = System.currentTimeMillis();
+            elapsedTime = endTime - startTime;
+            bruteBestDistance = heldKarp.bestDistance;
+            bruteBestPath = heldKarp.bestPath;
+            displayPath(bruteBestPath);
+            System.out.println("Method: Held-Karp Dynamic Programming");
+            System.out.printf("Shortest Distance: %.5f%n", bruteBestDistance);
+            System.out.println("Shortest Path: " + bruteBestPath);
+            System.out.printf("Memory used by the table: %.1f MB%n", heldKarp.memoryBytes() / 1e6);
+            System.out.println("Time it takes to find the shortest path: " + (float) elapsedTime / 1000 + " seconds");
+            storeResult(cache, solver, bruteBestPath, bruteBestDistance, new ArrayList<>());
+        } else if (chosenMethod == 4) {
+            // If the branch-and-bound method is chosen
+            BranchAndBound branchAndBound = new BranchAndBound(distances);
+            startTime = System.currentTimeMillis();
+            branchAndBound.solve(Runtime.getRuntime().availableProcessors()); // Search the pruned tree on all cores
+            endTime = System.currentTimeMillis();
+            elapsedTime = endTime - startTime;
+            bruteBestDistance = branchAndBound.bestDistance;
+            bruteBestPath = branchAndBound.bestPath;
+            displayPath(bruteBestPath);
+            System.out.println("Method: Branch and Bound");
+            System.out.printf("Shortest Distance: %.5f%n", bruteBestDistance);
+            System.out.println("Shortest Path: " + bruteBestPath);
+            System.out.println("Explored search tree nodes: " + branchAndBound.exploredNodes());
+            System.out.println("Time it takes to find the shortest path: " + (float) elapsedTime / 1000 + " seconds");
+            storeResult(cache, solver, bruteBestPath, bruteBestDistance, new ArrayList<>());
         } else {
             // If the ant colony optimization method is chosen
-            setHyperParameters();
-            initializePheromoneMatrix();
+            if (cache != null && cacheWarmStart) {
+                seedResult = cache.best(coordinates); // Start from the best tour any solver found for these points
+            }
+            if (candidateCount > 0) {
+                initializeCandidateLists(); // Restrict the ants' choices to the nearest neighbours
+            }
             startTime = System.currentTimeMillis();
-            train(); // Train the ant colony optimization algorithm to find the shortest path
+            if (islandCount > 1) {
+                trainIslands(); // Train several colonies at once, which exchange their best tours
+            } else {
+                train(); // Train the ant colony optimization algorithm to find the shortest path
+            }
             endTime = System.currentTimeMillis();
             elapsedTime = endTime - startTime;
             reorderPath(); // Reorder the path based on the best path found
             System.out.println("Method: Ant Colony Optimization");
             System.out.printf("Shortest Distance: %.5f%n", bestDistance);
             System.out.println("Shortest Path: " + bestPath);
+            System.out.println("Iterations: " + bestDistances.size() + " (stopped by " + stopReason + ")");
             System.out.println("Time it takes to find the shortest path: " + (float) elapsedTime / 1000 + " seconds");
+            storeResult(cache, solver, bestPath, bestDistance, bestDistances);
 
             if (chosenGraph == 1) {
                 // If the final path is chosen to be displayed
@@ -116,8 +202,9 @@ public class AliGur {
     /**
      * Sets the hyperparameters used in the ant colony optimization algorithm.
      * These parameters determine the behavior of the algorithm and can be adjusted for different problem instances.
+     * The distance store is chosen here as well, since every method and the batch tools read it.
      */
-    private static void setHyperParameters() {
+    public static void setHyperParameters() {
         alpha = 0.9; // Alpha parameter controls the influence of pheromone on ant's decision-making
         beta = 2.9; // Beta parameter controls the influence of distance on ant's decision-making
         Q = 0.01; // Q parameter represents the amount of pheromone deposited by each ant
@@ -125,42 +212,102 @@ public class AliGur {
         degradationFactor = 0.7; // Factor by which pheromone evaporates or degrades after each iteration
         iterationCount = 100; // Number of iterations or cycles of the algorithm
         antCount = 50; // Number of ants used in each iteration of the algorithm
+        threadCount = 1; // Number of worker threads building tours (1 runs the ants one after another)
+        chosenDistanceStore = 1; // Set the distance storage (1 for full matrix, 2 for packed triangle, 3 for off-heap triangle, 4 for computing on demand)
+        candidateCount = 0; // Number of nearest neighbours an ant considers first at each step (0 always considers all nodes)
+        sparsePheromone = false; // Whether pheromone is only kept on the edges to the nearest neighbours (needs candidateCount > 0)
+        localSearch = 0; // Local search applied to the tours before they deposit pheromone (0 for none, 1 for 2-opt, 2 for 2-opt and Or-opt)
+        localSearchAllAnts = false; // Whether the local search improves every ant's tour, instead of only the best tour of each iteration
+        plateauIterations = 0; // Number of iterations without improvement after which training stops (0 never stops early)
+        convergenceEntropy = 0.6; // Mean normalized pheromone entropy below which the colony counts as converged on a plateau
+        timeBudget = 0; // Wall-clock time in milliseconds after which training stops (0 for no limit)
+        targetDistance = 0; // Distance at or below which training stops (0 for no target)
+        seed = 0; // Seed of the random number generators (0 for a different seed in every run)
+        islandCount = 1; // Number of colonies that run at the same time, each on its own thread (1 for a single colony)
+        migrationInterval = 10; // Number of iterations after which the colonies exchange their best tours
+        migrationBlend = 0; // Share of the neighbouring colony's pheromone blended into each colony at a migration (0 for none)
+        metricsInterval = 0; // Number of iterations between two printed lines of training metrics (0 prints none)
+        checkpointInterval = 0; // Number of iterations between two checkpoints of a single colony (0 writes none)
+        checkpointFile = "checkpoint.bin"; // File the checkpoints are written to and resumed from
+        resume = false; // Whether training continues from checkpointFile, which needs the same input, seed and hyperparameters
+        previousFileName = ""; // Point file of an earlier run whose checkpointFile warm-starts training on a changed point file (empty for a cold start)
+        vectorKernels = false; // Whether the ants use the Vector API kernels (needs VectorKernels on the class path and --add-modules jdk.incubator.vector)
+        powTolerance = 0; // Relative error allowed in pheromone^alpha, which enables a faster approximation of the power (0 for exact powers)
+        cacheWarmStart = false; // Whether training starts from the best tour in the result cache for the same points, found by any solver (needs cacheSize > 0)
+        liveFrameRate = 0; // Frames per second of the pheromone graph drawn while a single colony trains (0 only draws it at the end)
+        liveEdgeCount = 500; // Largest number of edges in each live frame, which keeps drawing a frame fast at any number of nodes
+        liveThreshold = 0; // Pheromone below which edges are left out of the live frames
     }
 
 
 
     /**
-     * Loads data from a file into the coordinates list.
-     * Each line of the file is expected to contain two comma-separated values representing x and y coordinates.
-     *
-     * @throws RuntimeException if the file specified by fileName is not found
+     * Loads data from the file specified by fileName into the coordinates list.
      */
     private static void loadData() {
+        coordinates = readCoordinates(fileName);
+    }
+
+    /**
+     * Reads the coordinates of the nodes from a file.
+     * The file is either a plain file with one comma-separated x and y coordinate per line,
+     * or a TSPLIB file with EUC_2D coordinates. See PointReader for the details.
+     *
+     * @param file The path of the file
+     * @return The coordinates as {x, y} pairs, in the order of the file
+     * @throws RuntimeException if the file cannot be read
+     */
+    public static ArrayList<double[]> readCoordinates(String file) {
         try {
-            // Open the file using Scanner
-            Scanner scanner = new Scanner(new File(fileName));
-            while (scanner.hasNextLine()) {
-                // Read each line and split it by comma to extract x and y coordinates
-                String[] line = scanner.nextLine().split(",");
-                double x = Double.parseDouble(line[0]);
-                double y = Double.parseDouble(line[1]);
-                // Add the coordinates to the list
-                coordinates.add(new double[]{x, y});
-            }
-            scanner.close(); // Close the scanner to release resources
-        } catch (FileNotFoundException e) {
-            // Throw a runtime exception if the file is not found
+            PointReader reader = new PointReader(file);
+            reader.read(); // Stream the file into primitive arrays
+            return reader.toList();
+        } catch (IOException e) {
+            // Throw a runtime exception if the file is not found or cannot be read
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Initializes the weight matrix based on the Euclidean distance between coordinates.
-     * The weight matrix represents the distance between each pair of coordinates.
+     * Initializes the distance store chosen by chosenDistanceStore.
+     * Only the full matrix store fills the weight matrix. The other stores trade lookup speed for memory,
+     * so that instances too large for an n x n matrix can still be solved.
      */
     private static void initializeWeightMatrix() {
         n = coordinates.size(); // Get the number of coordinates
-        weightMatrix = new double[n][n]; // Initialize the weight matrix
+        distances = createDistanceStore(coordinates, chosenDistanceStore);
+        weightMatrix = distances instanceof MatrixDistanceStore ? ((MatrixDistanceStore) distances).matrix : null;
+    }
+
+    /**
+     * Creates a distance store over the given coordinates.
+     *
+     * @param coordinates The coordinates of the nodes
+     * @param store The kind of store (1 for full matrix, 2 for packed triangle, 3 for off-heap triangle, 4 for computing on demand)
+     * @return The distance store
+     */
+    public static DistanceStore createDistanceStore(ArrayList<double[]> coordinates, int store) {
+        if (store == 2) {
+            return new PackedDistanceStore(coordinates);
+        } else if (store == 3) {
+            return new OffHeapDistanceStore(coordinates);
+        } else if (store == 4) {
+            return new LazyDistanceStore(coordinates);
+        } else {
+            return new MatrixDistanceStore(fullWeightMatrix(coordinates));
+        }
+    }
+
+    /**
+     * Computes the weight matrix based on the Euclidean distance between coordinates.
+     * The weight matrix represents the distance between each pair of coordinates.
+     *
+     * @param coordinates The coordinates of the nodes
+     * @return The weight matrix
+     */
+    private static double[][] fullWeightMatrix(ArrayList<double[]> coordinates) {
+        int n = coordinates.size(); // Get the number of coordinates
+        double[][] weightMatrix = new double[n][n]; // Initialize the weight matrix
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
                 // Retrieve the coordinates for the current indices
@@ -172,37 +319,50 @@ public class AliGur {
                 weightMatrix[i][j] = distance;
             }
         }
+        return weightMatrix;
     }
 
 
     /**
-     * Initializes the pheromone matrix with a uniform initial density.
-     * The pheromone matrix represents the amount of pheromone on each edge.
+     * Initializes the candidate list of each node, which holds its nearest neighbours sorted by distance.
+     * The neighbours are found with a k-d tree built from the coordinates, so this takes O(n log n) time
+     * instead of sorting every row of the distances.
      */
-    private static void initializePheromoneMatrix() {
-        pheromoneMatrix = new double[n][n]; // Initialize the pheromone matrix
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                // Set the initial pheromone density for each edge
-                pheromoneMatrix[i][j] = initialPheromoneDensity;
-            }
+    private static void initializeCandidateLists() {
+        candidateLists = findNearestNeighbours(coordinates, candidateCount);
+    }
+
+
+    /**
+     * Finds the nearest neighbours of each node with a k-d tree built from the coordinates.
+     *
+     * @param coordinates The coordinates of the nodes
+     * @param k The number of neighbours to find for each node
+     * @return The nearest neighbours of each node, sorted by distance
+     */
+    public static int[][] findNearestNeighbours(ArrayList<double[]> coordinates, int k) {
+        KdTree tree = new KdTree(coordinates);
+        int[][] neighbours = new int[coordinates.size()][];
+        for (int i = 0; i < neighbours.length; i++) {
+            neighbours[i] = tree.nearest(i, k);
         }
+        return neighbours;
     }
 
 
     /**
-     * Displays a graph representing the pheromone distribution and nodes on a 2D plane.
+     * Displays a graph representing the pheromone distribution of the trained colony and nodes on a 2D plane.
      * Nodes are represented as filled circles, and pheromone trails between nodes are drawn with varying thickness.
      */
     private static void displayPheromoneGraph() {
         // Draw pheromone trails between nodes
         for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
+            for (int j = 0; j < colony.pheromoneMatrix[i].length; j++) {
                 // Retrieve coordinates of the nodes
                 double[] coordinates1 = coordinates.get(i);
-                double[] coordinates2 = coordinates.get(j);
+                double[] coordinates2 = coordinates.get(colony.edgeTarget(i, j));
                 // Set pen radius based on pheromone density
-                StdDraw.setPenRadius(0.1 * pheromoneMatrix[i][j]);
+                StdDraw.setPenRadius(0.1 * colony.pheromoneMatrix[i][j] * colony.pheromoneScale);
                 // Draw line between nodes
                 StdDraw.line(coordinates1[0], coordinates1[1], coordinates2[0], coordinates2[1]);
             }
@@ -271,162 +431,359 @@ public class AliGur {
     /**
      * Trains the ant colony optimization algorithm by running a specified number of iterations.
      * In each iteration, ants construct solutions by traversing the graph and laying pheromone trails.
+     * If resume is set, the colony first takes over the state of the checkpoint file and runs the remaining iterations.
+     * If previousFileName is set instead, the colony starts from the checkpoint of a run on that earlier point file.
+     * Otherwise, a tour from the result cache deposits pheromone first if cacheWarmStart found one.
+     * If liveFrameRate is set, the strongest edges of the pheromone graph are drawn while the colony trains.
      */
     private static void train() {
-        // Run a specified number of iterations
-        for (int i = 0; i < iterationCount; i++) {
-            cycleAnts(); // Construct solutions by ants
+        colony = createColony(coordinates, distances, candidateLists, initialSeed());
+        colony.checkpointInterval = checkpointInterval;
+        colony.checkpointFile = checkpointFile;
+        if (resume) {
+            colony.start();
+            try {
+                Checkpointer.load(colony, checkpointFile);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not resume from " + checkpointFile, e);
+            }
+        } else if (!previousFileName.isEmpty()) {
+            warmStart(); // Continue from the pheromone and the best tour of the earlier run
+        } else if (seedResult != null) {
+            colony.start();
+            colony.depositTour(seedTour(), seedResult.distance);
+        }
+        if (liveFrameRate > 0) {
+            colony.liveView = new LiveView(coordinates, liveFrameRate, liveEdgeCount, liveThreshold);
         }
+        try {
+            colony.train();
+        } finally {
+            if (colony.liveView != null) {
+                colony.liveView.close(); // Stop drawing before the final graph is drawn
+            }
+        }
+        stopReason = colony.stopReason;
+        collectResults(colony);
     }
 
     /**
-     * Performs a cycle of ant behavior by letting each ant construct a solution.
-     * After all ants have completed their cycles, the pheromone density is degraded, and the best solution length is recorded.
+     * Starts the colony from the checkpoint of an earlier run on the points of previousFileName, which differ from the
+     * current points by a few added or removed nodes. Nodes are matched by their coordinates.
+     * The earlier run must have used the same hyperparameters.
      */
-    private static void cycleAnts() {
-        // Let each ant construct a solution
-        for (int i = 0; i < antCount; i++) {
-            cycleAnt(); // Construct a solution with the current ant
+    private static void warmStart() {
+        ArrayList<double[]> previousCoordinates = readCoordinates(previousFileName);
+        DistanceStore previousDistances = createDistanceStore(previousCoordinates, chosenDistanceStore);
+        int[][] previousCandidates = candidateCount > 0 ? findNearestNeighbours(previousCoordinates, candidateCount) : null;
+        Colony previous = createColony(previousCoordinates, previousDistances, previousCandidates, 1);
+        previous.localSearch = 0; // Only the pheromone and the best tour of the earlier colony are needed
+        previous.start();
+        try {
+            Checkpointer.load(previous, checkpointFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the earlier run from " + checkpointFile, e);
+        } finally {
+            previous.close();
         }
 
-        degradePheromoneDensity();
-
-        // Record the length of the best solution found in this iteration
-        bestDistances.add(bestDistance);
+        colony.start();
+        colony.warmStart(previous, matchNodes(previousCoordinates, coordinates));
     }
 
     /**
-     * Degrades the pheromone density on all edges in the pheromone matrix.
-     * This is done by multiplying the existing pheromone density by (1 - degradationFactor).
+     * Matches the nodes of two point sets that have the same coordinates.
+     *
+     * @param previousCoordinates The coordinates of the earlier nodes
+     * @param currentCoordinates The coordinates of the current nodes
+     * @return The index of each current node among the earlier nodes, or -1 if no earlier node has its coordinates
      */
-    private static void degradePheromoneDensity() {
-        // Iterate over each edge in the pheromone matrix
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                // Degrade the pheromone density on the edge
-                pheromoneMatrix[i][j] *= (1 - degradationFactor);
-            }
+    public static int[] matchNodes(ArrayList<double[]> previousCoordinates, ArrayList<double[]> currentCoordinates) {
+        // Group the earlier nodes by their coordinates, keeping duplicates in their order
+        HashMap<String, ArrayDeque<Integer>> previousNodes = new HashMap<>();
+        for (int i = 0; i < previousCoordinates.size(); i++) {
+            previousNodes.computeIfAbsent(Arrays.toString(previousCoordinates.get(i)), key -> new ArrayDeque<>()).add(i);
         }
-    }
 
+        int[] matches = new int[currentCoordinates.size()];
+        for (int i = 0; i < matches.length; i++) {
+            ArrayDeque<Integer> nodes = previousNodes.get(Arrays.toString(currentCoordinates.get(i)));
+            matches[i] = nodes != null && !nodes.isEmpty() ? nodes.poll() : -1;
+        }
+        return matches;
+    }
 
     /**
-     * Represents a single cycle of an ant constructing a solution.
-     * The ant selects the next node to visit based on probabilities and updates the solution path accordingly.
-     * After completing the cycle, the pheromone matrix is updated, and the best solution length and path are updated if necessary.
+     * Trains several independent colonies at the same time, one per thread, with consecutive seeds.
+     * After every migrationInterval iterations the colonies wait for each other and exchange their best tours,
+     * and the result is the best tour of all colonies. Training stops after iterationCount iterations,
+     * or at a migration once the time budget or the target distance is reached.
+     *
+     * @throws IllegalArgumentException if migrationInterval is not positive, since the colonies would never stop
      */
-    private static void cycleAnt() {
-        double distance = 0;
-        ArrayList<Integer> path = new ArrayList<>();
-        Random rand = new Random();
-        int nextNode = rand.nextInt(n); // Select a random starting node
-        int startingNode = nextNode; // Store the starting node
-        int previousNode = 0; // Initialize the previous node
-        int[] visited = new int[n]; // Initialize an array to track visited cities
-        double[] probabilities; // Initialize an array to store probabilities for selecting the next node
-
-        // While there are still unvisited nodes
-        while (nextNode > -1) {
-            path.add(nextNode); // Add the current node to the path
-            visited[nextNode] = 1; // Mark the current node as visited
-            probabilities = calculateProbabilities(nextNode, visited); // Calculate probabilities for selecting the next node
-            previousNode = nextNode; // Update the previous node
-            nextNode = findNext(probabilities, n); // Select the next node based on probabilities
-
-            // If there is a next node, update the distance of the path
-            if (nextNode > -1) {
-                distance += weightMatrix[previousNode][nextNode];
+    private static void trainIslands() {
+        if (migrationInterval <= 0) {
+            throw new IllegalArgumentException("Island mode needs a positive migrationInterval, not " + migrationInterval);
+        }
+        long firstSeed = initialSeed();
+        Colony[] islands = new Colony[islandCount];
+        for (int k = 0; k < islandCount; k++) {
+            islands[k] = createColony(coordinates, distances, candidateLists, firstSeed + k);
+            islands[k].threadCount = 1; // Every colony already has a thread of its own
+            islands[k].start();
+            if (seedResult != null) {
+                islands[k].depositTour(seedTour(), seedResult.distance);
             }
         }
 
-        distance += weightMatrix[startingNode][previousNode]; // Add the distance from the last node back to the starting node
-        path.add(startingNode); // Add the starting node to complete the path
-        updatePheromoneMatrix(path, distance); // Update the pheromone matrix based on the ant's path
+        ExecutorService islandPool = Executors.newFixedThreadPool(islandCount);
+        Future<?>[] islandFutures = new Future<?>[islandCount];
+        long trainStart = System.currentTimeMillis();
+        stopReason = "iteration count";
+
+        try {
+            for (int done = 0; done < iterationCount; done += migrationInterval) {
+                int epoch = Math.min(migrationInterval, iterationCount - done);
+
+                // Let every colony run until the next migration
+                for (int k = 0; k < islandCount; k++) {
+                    Colony island = islands[k];
+                    islandFutures[k] = islandPool.submit(() -> {
+                        for (int i = 0; i < epoch; i++) {
+                            island.iterate();
+                        }
+                    });
+                }
+                for (Future<?> future : islandFutures) {
+                    try {
+                        future.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    } catch (ExecutionException e) {
+                        throw new RuntimeException(e.getCause());
+                    }
+                }
 
-        // Update the best solution distance and path if the current path is better
-        if (distance < bestDistance) {
-            bestDistance = distance;
-            bestPath = path;
+                Colony best = migrate(islands);
+                if (targetDistance > 0 && best.bestDistance <= targetDistance) {
+                    stopReason = "target distance";
+                    break;
+                }
+                if (timeBudget > 0 && System.currentTimeMillis() - trainStart >= timeBudget) {
+                    stopReason = "time budget";
+                    break;
+                }
+            }
+        } finally {
+            islandPool.shutdown(); // Release the colony threads once training is over
+            for (Colony island : islands) {
+                island.close();
+            }
+        }
+
+        colony = bestIsland(islands); // Keep the best colony for the pheromone graph
+        collectResults(colony);
+
+        // The best distance after each iteration is the best distance of any colony
+        for (int i = 0; i < bestDistances.size(); i++) {
+            for (Colony island : islands) {
+                bestDistances.set(i, Math.min(bestDistances.get(i), island.bestDistances.get(i)));
+            }
         }
     }
 
     /**
-     * Calculates the probabilities of selecting each unvisited node as the next destination for an ant.
-     * Probabilities are based on the amount of pheromone on the edge and the inverse of the distance to the node.
+     * Sends the best tour of all colonies to every other colony, which deposits pheromone on it.
+     * If migrationBlend is positive, every colony also blends in the pheromone of the previous colony in a ring.
      *
-     * @param next The index of the current node
-     * @param visited An array indicating which nodes have been visited (1 for visited, 0 for unvisited)
-     * @return An array of probabilities for selecting each unvisited node
+     * @param islands The colonies
+     * @return The colony with the best tour
      */
-    private static double[] calculateProbabilities(int next, int[] visited) {
-        double[] probabilities = new double[n]; // Initialize an array to store probabilities
-        double sum = 0; // Initialize a variable to store the sum of probabilities
-
-        // Calculate probabilities for each unvisited node
-        for (int i = 0; i < n; i++) {
-            if (visited[i] == 1) {
-                probabilities[i] = 0; // Set probability to 0 for visited cities
-            } else {
-                // Calculate probability based on pheromone level and distance to the node
-                probabilities[i] = Math.pow(pheromoneMatrix[next][i], alpha) / Math.pow(weightMatrix[next][i], beta);
-                sum += probabilities[i]; // Update the sum of probabilities
+    private static Colony migrate(Colony[] islands) {
+        Colony best = bestIsland(islands);
+        for (Colony island : islands) {
+            if (island.bestDistance > best.bestDistance) {
+                island.depositTour(best.bestTour, best.bestDistance);
             }
         }
 
-        // Normalize probabilities
-        for (int i = 0; i < n; i++) {
-            probabilities[i] /= sum; // Divide each probability by the sum to ensure they sum up to 1
+        if (migrationBlend > 0) {
+            // Keep a copy of the last colony's pheromone, since the first colony needs it after the last one was blended
+            Colony last = islands[islands.length - 1];
+            double[][] lastPheromone = new double[n][];
+            for (int i = 0; i < n; i++) {
+                lastPheromone[i] = last.pheromoneMatrix[i].clone();
+            }
+            double lastScale = last.pheromoneScale;
+
+            for (int k = islands.length - 1; k > 0; k--) {
+                islands[k].blendPheromone(islands[k - 1].pheromoneMatrix, islands[k - 1].pheromoneScale, migrationBlend);
+            }
+            islands[0].blendPheromone(lastPheromone, lastScale, migrationBlend);
         }
+        return best;
+    }
 
-        return probabilities; // Return the array of probabilities
+    /**
+     * Finds the colony with the shortest tour.
+     *
+     * @param islands The colonies
+     * @return The colony with the best tour
+     */
+    private static Colony bestIsland(Colony[] islands) {
+        Colony best = islands[0];
+        for (Colony island : islands) {
+            if (island.bestDistance < best.bestDistance) {
+                best = island;
+            }
+        }
+        return best;
     }
 
+    /**
+     * Creates a colony with the hyperparameters set in setHyperParameters.
+     *
+     * @param coordinates The coordinates of the nodes, which are used to find the neighbours for the local search and the nearest unvisited nodes
+     * @param store The distances between the nodes
+     * @param candidates The candidate lists of the nodes, or null to always consider all nodes
+     * @param colonySeed The seed of the colony's random number generators
+     * @return The colony, which still has to be started
+     */
+    public static Colony createColony(ArrayList<double[]> coordinates, DistanceStore store, int[][] candidates, long colonySeed) {
+        Colony created = new Colony(store, candidates, colonySeed);
+        created.alpha = alpha;
+        created.beta = beta;
+        created.Q = Q;
+        created.initialPheromoneDensity = initialPheromoneDensity;
+        created.degradationFactor = degradationFactor;
+        created.iterationCount = iterationCount;
+        created.antCount = antCount;
+        created.threadCount = threadCount;
+        created.sparsePheromone = sparsePheromone;
+        created.nodeTree = candidates != null ? new KdTree(coordinates) : null; // Finds the nearest unvisited node once the candidates are used up
+        created.localSearch = localSearch;
+        created.localSearchAllAnts = localSearchAllAnts;
+        created.plateauIterations = plateauIterations;
+        created.convergenceEntropy = convergenceEntropy;
+        created.timeBudget = timeBudget;
+        created.targetDistance = targetDistance;
+        created.metricsInterval = metricsInterval;
+        created.vectorKernels = vectorKernels;
+        created.powTolerance = powTolerance;
+        if (localSearch > 0 && candidates == null) {
+            created.searchNeighbours = findNearestNeighbours(coordinates, 10); // Search moves among the 10 nearest neighbours
+        }
+        return created;
+    }
 
     /**
-     * Finds the index of the next node to visit based on probabilities.
-     * Randomly selects a node based on the given probabilities.
+     * Describes the solver and the hyperparameters that affect its result, which together with the points form the
+     * key of the result cache. All exact methods share one description, since each of them finds a shortest tour.
+     * The seed is left out if it is 0, so that a random run is answered by any earlier random run. The number of threads
+     * and the distance store are part of the key, since both change the tours of a seeded run, and so is whether the run
+     * starts from a cached tour.
      *
-     * @param probabilities An array of probabilities for selecting each node
-     * @param n The total number of nodes
-     * @return The index of the next node to visit
+     * @return The description, or null if the result also depends on a checkpoint and cannot be cached
      */
-    private static int findNext(double[] probabilities, int n) {
-        int next = -1;
-        Random random = new Random();
-        double randomNumber = random.nextDouble(); // Generate a random number between 0 and 1
-        double sum = 0; // Initialize a variable to track the cumulative sum of probabilities
+    private static String solverDescription() {
+        if (chosenMethod != 2) {
+            return "exact";
+        }
+        if (resume || !previousFileName.isEmpty()) {
+            return null;
+        }
+        return "aco alpha=" + alpha + " beta=" + beta + " degradationFactor=" + degradationFactor + " Q=" + Q
+                + " initialPheromoneDensity=" + initialPheromoneDensity + " iterationCount=" + iterationCount
+                + " antCount=" + antCount + " candidateCount=" + candidateCount + " sparsePheromone=" + sparsePheromone
+                + " localSearch=" + localSearch + " localSearchAllAnts=" + localSearchAllAnts
+                + " plateauIterations=" + plateauIterations + " convergenceEntropy=" + convergenceEntropy
+                + " timeBudget=" + timeBudget + " targetDistance=" + targetDistance
+                + " seed=" + (seed != 0 ? String.valueOf(seed) : "any") + " islandCount=" + islandCount
+                + " migrationInterval=" + migrationInterval + " migrationBlend=" + migrationBlend
+                + " powTolerance=" + powTolerance + " threadCount=" + threadCount
+                + " chosenDistanceStore=" + chosenDistanceStore + " cacheWarmStart=" + cacheWarmStart;
+    }
 
-        // Iterate over each node's probability
-        for (int i = 0; i < n; i++) {
-            sum += probabilities[i]; // Add the current probability to the sum
-            // If the cumulative sum exceeds the random number and the probability is not 0,
-            // set the index of the next node and exit the loop
-            if (sum > randomNumber && probabilities[i] != 0) {
-                next = i;
-                break;
-            }
+    /**
+     * Prints and displays the result that the cache holds for the points and the solver, if there is one.
+     * The pheromone of a cached run is not stored, so the cached tour is displayed whichever graph is chosen.
+     *
+     * @param cache The result cache
+     * @param solver The description of the solver
+     * @return True if the cache held a result
+     */
+    private static boolean showCachedResult(ResultCache cache, String solver) {
+        startTime = System.currentTimeMillis();
+        ResultCache.Result cached = cache.get(coordinates, solver);
+        if (cached == null) {
+            return false;
         }
+        endTime = System.currentTimeMillis();
+        elapsedTime = endTime - startTime;
+        bestPath = cached.path;
+        bestDistance = cached.distance;
+        bestDistances = cached.trace;
+
+        System.out.println("Method: " + METHOD_NAMES[chosenMethod - 1] + " (cached result)");
+        System.out.printf("Shortest Distance: %.5f%n", bestDistance);
+        System.out.println("Shortest Path: " + bestPath);
+        if (!bestDistances.isEmpty()) {
+            System.out.println("Iterations: " + bestDistances.size());
+        }
+        System.out.println("Time it takes to find the shortest path: " + (float) elapsedTime / 1000 + " seconds");
+        displayPath(bestPath);
+        return true;
+    }
 
-        return next; // Return the index of the next node to visit
+    /**
+     * Stores a result in the result cache, if there is one and the result can be cached.
+     *
+     * @param cache The result cache, or null
+     * @param solver The description of the solver, or null if the result cannot be cached
+     * @param path The tour numbered from 1, starting and ending with node 1
+     * @param distance The length of the tour
+     * @param trace The best distance after each iteration
+     */
+    private static void storeResult(ResultCache cache, String solver, ArrayList<Integer> path, double distance, ArrayList<Double> trace) {
+        if (cache != null && solver != null) {
+            cache.put(coordinates, solver, new ResultCache.Result(path, distance, trace));
+        }
     }
 
+    /**
+     * Returns the cached tour that seeds the colonies as node indices.
+     *
+     * @return The tour as n + 1 node indices, ending with its starting node
+     */
+    private static int[] seedTour() {
+        int[] tour = new int[seedResult.path.size()];
+        for (int k = 0; k < tour.length; k++) {
+            tour[k] = seedResult.path.get(k) - 1;
+        }
+        return tour;
+    }
 
     /**
-     * Updates the pheromone matrix based on the ant's path and the length of the path.
-     * Pheromone levels are adjusted using a delta value calculated from the quality of the path.
+     * Returns the seed of the first colony.
      *
-     * @param path The ant's path, represented as a list of node indices
-     * @param length The length of the ant's path
+     * @return The configured seed, or a seed taken from the clock if it is 0
      */
-    private static void updatePheromoneMatrix(ArrayList<Integer> path, double length) {
-        int n = path.size(); // Get the number of nodes in the path
-        double delta = Q / length; // Calculate the delta value based on the quality of the path
+    private static long initialSeed() {
+        return seed != 0 ? seed : System.nanoTime();
+    }
 
-        // Update pheromone levels on each edge of the path
-        for (int i = 0; i < n - 1; i++) {
-            // Update pheromone levels for the edge between consecutive nodes
-            pheromoneMatrix[path.get(i)][path.get(i + 1)] += delta;
-            pheromoneMatrix[path.get(i + 1)][path.get(i)] += delta;
+    /**
+     * Copies the best tour and the best distance after each iteration from a trained colony.
+     *
+     * @param trained The colony
+     */
+    private static void collectResults(Colony trained) {
+        bestDistance = trained.bestDistance;
+        bestDistances = new ArrayList<>(trained.bestDistances);
+        bestPath = new ArrayList<>(n + 1);
+        for (int node : trained.bestTour) {
+            bestPath.add(node);
         }
     }
 
@@ -454,7 +811,7 @@ public class AliGur {
         // Explore all unvisited nodes from the current node
         for (int i = 0; i < n; i++) {
             if (visited[i] == 0) {
-                double updatedLength = length + weightMatrix[node][i]; // Calculate the length of the path if node 'i' is visited next
+                double updatedLength = length + distances.get(node, i); // Calculate the length of the path if node 'i' is visited next
                 bruteForce(visited, path, i, updatedLength); // Recursively explore the path with node 'i' visited next
                 allVisited = false; // At least one unvisited node found, so the exploration is not finished
             }
@@ -462,7 +819,7 @@ public class AliGur {
 
         // If all nodes have been visited, complete the path by returning to the starting node
         if (allVisited) {
-            length += weightMatrix[node][0]; // Add the distance from the last node back to the starting node
+            length += distances.get(node, 0); // Add the distance from the last node back to the starting node
             path.add(1); // Add the starting node to complete the path
             // If the length of the current path is shorter than the best length found so far, update the best path and length
             if (length < bruteBestDistance) {
@@ -0,0 +1,56 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Represents the reusable working state of an ant while it constructs tours.
+ * One instance is kept per worker thread and reused for every tour the worker builds,
+ * so tour construction does not allocate any memory once the colony is running.
+ */
+public class Ant {
+    // Instance variables
+    public final long[] visited;         // Bitset of the nodes visited in the current tour
+    public final double[] cumulativeWeights; // Scratch buffer for the running sum of the selection weights of the nodes
+    public final int[] unvisitedCounts;  // Unvisited nodes in each range of the colony's k-d tree, if it has one
+    public final Random random;          // Random number generator used for all choices of this ant
+
+    // Public constructor
+    /**
+     * Constructs a new Ant with buffers sized for the given number of nodes.
+     *
+     * @param n The number of nodes in the graph.
+     * @param random The random number generator the ant keeps for its whole life.
+     */
+    public Ant(int n, Random random) {
+        this.visited = new long[(n + 63) >>> 6];
+        this.cumulativeWeights = new double[n];
+        this.unvisitedCounts = new int[n];
+        this.random = random;
+    }
+
+    // Public methods
+    /**
+     * Marks all nodes as unvisited, before a new tour is constructed.
+     */
+    public void reset() {
+        Arrays.fill(visited, 0L);
+    }
+
+    /**
+     * Marks the given node as visited.
+     *
+     * @param node The index of the node.
+     */
+    public void visit(int node) {
+        visited[node >>> 6] |= 1L << node;
+    }
+
+    /**
+     * Checks whether the given node has been visited in the current tour.
+     *
+     * @param node The index of the node.
+     * @return True if the node has been visited, false otherwise.
+     */
+    public boolean isVisited(int node) {
+        return (visited[node >>> 6] & (1L << node)) != 0;
+    }
+}
@@ -0,0 +1,210 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the ant colony optimization on many instances and seeds without opening a window, and writes one CSV row per run.
+ * The hyperparameters are the ones set in AliGur.setHyperParameters. Every instance is loaded once, and all runs on it
+ * share its distances and candidate lists. The runs are spread over a pool of worker threads, so every colony builds its
+ * tours on a single thread.
+ * <p>
+ * Usage: java BatchRunner output.csv seeds workerCount instance1.txt [instance2.txt ...]
+ * where seeds is a comma-separated list such as 1,2,3 or a range such as 1-10.
+ */
+public class BatchRunner {
+    // Constants
+    private static final String HEADER = "instance,seed,best_distance,iterations,stop_reason,wall_time_ms,tour,trace";
+
+    // Instance variables
+    private final ArrayList<String> instances = new ArrayList<>();           // Paths of the instance files
+    private final ArrayList<ArrayList<double[]>> coordinates = new ArrayList<>(); // Coordinates of each instance
+    private final ArrayList<DistanceStore> distances = new ArrayList<>();    // Distances of each instance
+    private final ArrayList<int[][]> candidateLists = new ArrayList<>();     // Candidate lists of each instance, or null
+    private final PrintWriter output;                                        // Writer of the CSV file
+
+    // Public constructor
+    /**
+     * Constructs a new BatchRunner that writes its rows to the given writer.
+     *
+     * @param output The writer of the CSV file.
+     */
+    public BatchRunner(PrintWriter output) {
+        this.output = output;
+    }
+
+    // Public methods
+    /**
+     * Reads the arguments, runs every instance with every seed, and writes the results.
+     *
+     * @param args The output file, the seeds, the number of worker threads and the instance files.
+     * @throws IOException if the output file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            throw new IllegalArgumentException("Usage: java BatchRunner output.csv seeds workerCount instance1.txt [instance2.txt ...]");
+        }
+        long[] seeds = parseSeeds(args[1]);
+        int workerCount = Integer.parseInt(args[2]);
+
+        AliGur.setHyperParameters();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(args[0]))) {
+            BatchRunner runner = new BatchRunner(writer);
+            for (int i = 3; i < args.length; i++) {
+                runner.addInstance(args[i]);
+            }
+            runner.run(seeds, workerCount);
+        }
+    }
+
+    /**
+     * Loads an instance and prepares its distances and candidate lists.
+     *
+     * @param file The path of the instance file.
+     */
+    public void addInstance(String file) {
+        ArrayList<double[]> points = AliGur.readCoordinates(file);
+        instances.add(file);
+        coordinates.add(points);
+        distances.add(AliGur.createDistanceStore(points, AliGur.chosenDistanceStore));
+        candidateLists.add(AliGur.candidateCount > 0 ? AliGur.findNearestNeighbours(points, AliGur.candidateCount) : null);
+    }
+
+    /**
+     * Runs every instance with every seed on a pool of worker threads.
+     * Rows are written in the order in which the runs finish. A failed run is reported and does not stop the others.
+     *
+     * @param seeds The seeds to run every instance with.
+     * @param workerCount The number of worker threads.
+     */
+    public void run(long[] seeds, int workerCount) {
+        output.println(HEADER);
+        ExecutorService pool = Executors.newFixedThreadPool(workerCount);
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < instances.size(); i++) {
+                for (long seed : seeds) {
+                    int instance = i;
+                    futures.add(pool.submit(() -> runOnce(instance, seed)));
+                    names.add(instances.get(i) + " with seed " + seed);
+                }
+            }
+
+            // Wait for all runs to finish
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    System.err.println("Run of " + names.get(i) + " failed: " + e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Trains one colony on an instance and writes its row.
+     *
+     * @param instance The index of the instance.
+     * @param seed The seed of the colony.
+     */
+    private void runOnce(int instance, long seed) {
+        Colony colony = AliGur.createColony(coordinates.get(instance), distances.get(instance), candidateLists.get(instance), seed);
+        colony.threadCount = 1; // The runs already keep every worker thread busy
+
+        long start = System.nanoTime();
+        colony.train();
+        long wallTime = (System.nanoTime() - start) / 1_000_000;
+
+        String row = String.join(",",
+                instances.get(instance),
+                String.valueOf(seed),
+                String.format(Locale.ROOT, "%.5f", colony.bestDistance),
+                String.valueOf(colony.bestDistances.size()),
+                colony.stopReason,
+                String.valueOf(wallTime),
+                formatTour(colony.bestTour),
+                formatTrace(colony.bestDistances));
+        synchronized (output) {
+            output.println(row);
+            output.flush(); // Keep the finished rows if the batch is interrupted
+        }
+    }
+
+    /**
+     * Formats a tour with human-readable numbering, starting and ending with node 1, separated by spaces.
+     *
+     * @param tour The tour as n + 1 node indices, ending with its starting node.
+     * @return The formatted tour.
+     */
+    private static String formatTour(int[] tour) {
+        int n = tour.length - 1;
+        int start = 0;
+        while (tour[start] != 0) {
+            start++; // Find node 1
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i <= n; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(tour[(start + i) % n] + 1);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Formats the best distance after each iteration, separated by semicolons.
+     *
+     * @param trace The best distance after each iteration.
+     * @return The formatted trace.
+     */
+    private static String formatTrace(ArrayList<Double> trace) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < trace.size(); i++) {
+            if (i > 0) {
+                builder.append(';');
+            }
+            builder.append(String.format(Locale.ROOT, "%.5f", trace.get(i)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parses a comma-separated list of seeds, where each entry is a single seed or an inclusive range such as 1-10.
+     *
+     * @param text The list of seeds.
+     * @return The seeds.
+     */
+    private static long[] parseSeeds(String text) {
+        ArrayList<Long> seeds = new ArrayList<>();
+        for (String part : text.split(",")) {
+            int dash = part.indexOf('-', 1);
+            if (dash > 0) {
+                long from = Long.parseLong(part.substring(0, dash).trim());
+                long to = Long.parseLong(part.substring(dash + 1).trim());
+                for (long seed = from; seed <= to; seed++) {
+                    seeds.add(seed);
+                }
+            } else {
+                seeds.add(Long.parseLong(part.trim()));
+            }
+        }
+        long[] result = new long[seeds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = seeds.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the time and the memory allocation of the main operations of the solvers, so that changes to them can be
+ * compared between runs. Every case is warmed up first, then run repeatedly for a fixed time.
+ * The cases run on the bundled input files and on seeded uniform and clustered instances from 10 to 100000 points.
+ * Large instances use candidate lists and sparse pheromone storage, since their full matrices would not fit into memory.
+ * <p>
+ * Usage: java Benchmark [filter] [vector], run from the directory of the input files. Only cases whose name contains
+ * the filter are run. With "vector", the colonies use the Vector API kernels, which need VectorKernels on the class
+ * path and --add-modules jdk.incubator.vector. The scalar and the vector kernels are compared in separate runs,
+ * since the JIT compiles the kernels less well if both are used in the same JVM.
+ */
+public class Benchmark {
+    // Constants
+    private static final long WARMUP_NANOS = 2_000_000_000L;  // Time spent on each case before measuring, which lets C2 compile the vector kernels
+    private static final long MEASURE_NANOS = 2_000_000_000L; // Time spent on measuring each case
+    private static final int[] SIZES = {10, 100, 1_000, 10_000, 100_000}; // Sizes of the synthetic instances
+    private static final int CANDIDATE_COUNT = 10;            // Candidate list length for instances above 1000 points
+    private static final String[] CASES = {"construct", "iteration", "evaporation", "choice-info", "held-karp",
+            "branch-and-bound"};
+
+    // Instance variables
+    private final String filter;                              // Part of the names of the cases to run
+    private final boolean vector;                             // Whether the colonies use the Vector API kernels
+    private final com.sun.management.ThreadMXBean threads;    // Source of the allocated bytes of the current thread
+
+    // Public constructor
+    /**
+     * Constructs a new Benchmark that runs the cases whose name contains the filter.
+     *
+     * @param filter The part of the case names to look for, or an empty string for all cases.
+     * @param vector Whether the colonies use the Vector API kernels.
+     */
+    public Benchmark(String filter, boolean vector) {
+        this.filter = filter;
+        this.vector = vector;
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    // Public methods
+    /**
+     * Runs all cases that match the optional filter and prints one line per case.
+     *
+     * @param args An optional filter for the case names, and optionally "vector".
+     */
+    public static void main(String[] args) {
+        Benchmark benchmark = new Benchmark(args.length > 0 ? args[0] : "", args.length > 1 && args[1].equals("vector"));
+        AliGur.setHyperParameters();
+        System.out.printf("%-32s %12s %14s %14s%n", "case", "operations", "ns/op", "bytes/op");
+
+        for (int i = 1; i <= 5; i++) {
+            String name = "input0" + i;
+            benchmark.runInstance(name, AliGur.readCoordinates(name + ".txt"));
+        }
+        for (int size : SIZES) {
+            benchmark.runInstance("uniform-" + size, uniformPoints(size, size));
+            benchmark.runInstance("clustered-" + size, clusteredPoints(size, size));
+        }
+    }
+
+    /**
+     * Runs the cases of one instance: constructing a single tour, a full iteration of the colony, evaporation,
+     * refreshing the whole choice-info matrix, and the exact solvers on the instances that they can solve in a
+     * reasonable time.
+     *
+     * @param instance The name of the instance.
+     * @param points The coordinates of the instance.
+     */
+    public void runInstance(String instance, ArrayList<double[]> points) {
+        int n = points.size();
+        if (!matches(instance)) {
+            return;
+        }
+
+        // Full matrices up to 1000 points, packed triangles up to 10000 points, and computed distances above
+        DistanceStore store = AliGur.createDistanceStore(points, n <= 1_000 ? 1 : n <= 10_000 ? 2 : 4);
+        int[][] candidates = n > 1_000 ? AliGur.findNearestNeighbours(points, CANDIDATE_COUNT) : null;
+
+        Colony single = createColony(points, store, candidates, 1);
+        measure(instance + "/construct", single::constructTours); // Only the tour, without deposit or evaporation
+
+        Colony colony = createColony(points, store, candidates, AliGur.antCount);
+        measure(instance + "/iteration", colony::iterate);
+        measure(instance + "/evaporation", colony::degradePheromoneDensity);
+        measure(instance + "/choice-info", colony::refreshChoiceInfo);
+
+        if (n <= 16) {
+            measure(instance + "/held-karp", () -> new HeldKarp(store).solve());
+        }
+        if (n <= 40) {
+            measure(instance + "/branch-and-bound", () -> new BranchAndBound(store).solve(1));
+        }
+    }
+
+    /**
+     * Runs an operation repeatedly, first to warm it up and then to measure it, and prints the mean time and the mean
+     * number of allocated bytes per call. Does nothing if the name does not contain the filter.
+     *
+     * @param name The name of the case.
+     * @param operation The operation to measure.
+     */
+    public void measure(String name, Runnable operation) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            operation.run();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long operations = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            operation.run();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASURE_NANOS);
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        System.out.printf(Locale.ROOT, "%-32s %12d %14.1f %14.1f%n", name, operations,
+                (double) elapsed / operations, (double) allocated / operations);
+    }
+
+    /**
+     * Checks whether any case of the given instance matches the filter.
+     *
+     * @param instance The name of the instance.
+     * @return True if the filter is part of the name of at least one case of the instance.
+     */
+    private boolean matches(String instance) {
+        for (String name : CASES) {
+            if ((instance + "/" + name).contains(filter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates and starts a colony with the hyperparameters of AliGur and the given number of ants.
+     *
+     * @param points The coordinates of the nodes.
+     * @param store The distances between the nodes.
+     * @param candidates The candidate lists, or null.
+     * @param ants The number of ants.
+     * @return The started colony.
+     */
+    private Colony createColony(ArrayList<double[]> points, DistanceStore store, int[][] candidates, int ants) {
+        Colony colony = AliGur.createColony(points, store, candidates, 1);
+        colony.antCount = ants;
+        colony.vectorKernels = vector;
+        colony.threadCount = 1; // Measure a single thread
+        colony.sparsePheromone = candidates != null;
+        colony.start();
+        return colony;
+    }
+
+    /**
+     * Generates points uniformly distributed over the unit square.
+     *
+     * @param n The number of points.
+     * @param seed The seed of the random number generator.
+     * @return The points.
+     */
+    private static ArrayList<double[]> uniformPoints(int n, long seed) {
+        Random random = new Random(seed);
+        ArrayList<double[]> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            points.add(new double[]{random.nextDouble(), random.nextDouble()});
+        }
+        return points;
+    }
+
+    /**
+     * Generates points in normally distributed clusters around random centres in the unit square.
+     *
+     * @param n The number of points.
+     * @param seed The seed of the random number generator.
+     * @return The points.
+     */
+    private static ArrayList<double[]> clusteredPoints(int n, long seed) {
+        Random random = new Random(seed);
+        int clusterCount = Math.max(1, (int) Math.sqrt(n) / 2);
+        double[][] centres = new double[clusterCount][];
+        for (int c = 0; c < clusterCount; c++) {
+            centres[c] = new double[]{random.nextDouble(), random.nextDouble()};
+        }
+        ArrayList<double[]> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double[] centre = centres[random.nextInt(clusterCount)];
+            double x = Math.min(1, Math.max(0, centre[0] + 0.03 * random.nextGaussian()));
+            double y = Math.min(1, Math.max(0, centre[1] + 0.03 * random.nextGaussian()));
+            points.add(new double[]{x, y});
+        }
+        return points;
+    }
+}
@@ -0,0 +1,366 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents a parallel branch-and-bound solver, which finds the exact shortest tour.
+ * The search extends a path that starts at node 0 one node at a time. A branch is pruned when its length plus a lower
+ * bound on the rest of the tour is not shorter than the best tour found so far. The bound is a 1-tree style relaxation:
+ * a minimum spanning tree over the unvisited nodes and node 0, plus the cheapest edge from the end of the path,
+ * tightened with Lagrangian node penalties that are inherited from the parent branch.
+ * The upper levels of the search tree are split into tasks of a fork/join pool, and all tasks share the best tour.
+ */
+public class BranchAndBound {
+    // Constants
+    private static final int ROOT_ITERATIONS = 200;   // Subgradient steps for the bound of the empty path
+    private static final int NODE_ITERATIONS = 10;    // Subgradient steps for the bound of every other path
+
+    // Instance variables
+    private final int n;                      // Number of nodes
+    private final double[][] distances;       // Distance between each pair of nodes
+    private final int[][] nearestOrder;       // Other nodes of each node, sorted by distance
+    private final LongAdder exploredNodes = new LongAdder(); // Number of search tree nodes that were expanded
+    private int parallelDepth;                // Path length up to which branches become separate tasks
+    public volatile double bestDistance = Double.POSITIVE_INFINITY; // Length of the best tour found so far
+    public ArrayList<Integer> bestPath = new ArrayList<>(); // Best tour, numbered from 1 and ending with node 1
+
+    // Public constructor
+    /**
+     * Constructs a new BranchAndBound solver over the given distances.
+     *
+     * @param store The distances between the nodes.
+     */
+    public BranchAndBound(DistanceStore store) {
+        n = store.size();
+
+        // Copy the distances into a local matrix, since every entry is read many times
+        distances = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = store.get(i, j);
+            }
+        }
+
+        // Sort the neighbours of each node, so that short edges are tried first
+        nearestOrder = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int node = i;
+            Integer[] others = new Integer[n - 1];
+            for (int j = 0, k = 0; j < n; j++) {
+                if (j != node) {
+                    others[k++] = j;
+                }
+            }
+            Arrays.sort(others, (a, b) -> Double.compare(distances[node][a], distances[node][b]));
+            nearestOrder[i] = new int[n - 1];
+            for (int j = 0; j < n - 1; j++) {
+                nearestOrder[i][j] = others[j];
+            }
+        }
+    }
+
+    // Public methods
+    /**
+     * Returns the number of search tree nodes that were expanded by the last call to solve.
+     *
+     * @return The number of expanded nodes.
+     */
+    public long exploredNodes() {
+        return exploredNodes.sum();
+    }
+
+    /**
+     * Searches for the shortest tour on a fork/join pool with the given number of threads.
+     *
+     * @param threadCount The number of worker threads.
+     */
+    public void solve(int threadCount) {
+        if (n == 1) {
+            bestDistance = 0;
+            bestPath = new ArrayList<>(Arrays.asList(1, 1));
+            return;
+        }
+
+        initializeIncumbent(); // Start from a good tour, so that pruning is effective right away
+
+        // Split the search tree deep enough to give every thread several tasks
+        parallelDepth = 1;
+        long tasks = 1;
+        while (parallelDepth < n - 2 && tasks < 16L * threadCount) {
+            tasks *= n - parallelDepth;
+            parallelDepth++;
+        }
+
+        int[] path = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            pool.invoke(new SearchTask(path, visited, 1, 0, new double[n]));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Builds a first tour with the nearest neighbour heuristic and shortens it with 2-opt moves.
+     */
+    private void initializeIncumbent() {
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        for (int k = 1; k < n; k++) {
+            // Go to the nearest unvisited node
+            for (int next : nearestOrder[tour[k - 1]]) {
+                if (!visited[next]) {
+                    tour[k] = next;
+                    visited[next] = true;
+                    break;
+                }
+            }
+        }
+
+        // Reverse segments of the tour as long as this makes it shorter
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int a = tour[i - 1], b = tour[i], c = tour[j], d = tour[(j + 1) % n];
+                    double change = distances[a][c] + distances[b][d] - distances[a][b] - distances[c][d];
+                    if (change < -1e-12) {
+                        for (int l = i, r = j; l < r; l++, r--) {
+                            int temp = tour[l];
+                            tour[l] = tour[r];
+                            tour[r] = temp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        double length = 0;
+        for (int k = 0; k < n; k++) {
+            length += distances[tour[k]][tour[(k + 1) % n]];
+        }
+        offer(tour, length);
+    }
+
+    /**
+     * Replaces the best tour if the given one is shorter.
+     *
+     * @param tour The tour, starting with node 0 and not repeating it at the end.
+     * @param length The length of the tour.
+     */
+    private synchronized void offer(int[] tour, double length) {
+        if (length < bestDistance) {
+            ArrayList<Integer> path = new ArrayList<>(n + 1);
+            for (int node : tour) {
+                path.add(node + 1); // Shift node indices by 1 to match human-readable numbering
+            }
+            path.add(1);
+            bestPath = path;
+            bestDistance = length;
+        }
+    }
+
+    /**
+     * Represents the search below one partial path. Short paths are split into subtasks, one per next node,
+     * and long paths are searched depth-first on the current thread.
+     */
+    private class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] path;              // Nodes of the partial path
+        private final boolean[] visited;       // Nodes contained in the partial path
+        private final int depth;               // Number of nodes in the partial path
+        private final double length;           // Length of the partial path
+        private final double[][] penalties;    // Node penalties of the lower bound, one row per path length
+        private final int[] nodes = new int[n];            // Scratch buffer for the nodes of the spanning tree
+        private final double[] key = new double[n];        // Scratch buffer for the cheapest edge into the tree
+        private final int[] parent = new int[n];           // Scratch buffer for the tree node of that edge
+        private final int[] degree = new int[n];           // Scratch buffer for the degree of each tree node
+        private final boolean[] inTree = new boolean[n];   // Scratch buffer for the nodes already in the tree
+
+        SearchTask(int[] path, boolean[] visited, int depth, double length, double[] penalty) {
+            this.path = path;
+            this.visited = visited;
+            this.depth = depth;
+            this.length = length;
+            this.penalties = new double[n + 1][];
+            for (int d = depth; d <= n; d++) {
+                penalties[d] = d == depth ? penalty : new double[n];
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (depth >= parallelDepth) {
+                search(depth, length);
+                return;
+            }
+
+            int last = path[depth - 1];
+            double[] penalty = penalties[depth];
+            if (length + lowerBound(depth, length, penalty, depth == 1 ? ROOT_ITERATIONS : NODE_ITERATIONS) >= bestDistance) {
+                return; // This branch cannot lead to a shorter tour
+            }
+
+            exploredNodes.increment();
+            ArrayList<SearchTask> subtasks = new ArrayList<>();
+            for (int next : nearestOrder[last]) {
+                if (!visited[next]) {
+                    // Give every subtask its own copy of the path and of the penalties
+                    int[] nextPath = path.clone();
+                    boolean[] nextVisited = visited.clone();
+                    nextPath[depth] = next;
+                    nextVisited[next] = true;
+                    subtasks.add(new SearchTask(nextPath, nextVisited, depth + 1, length + distances[last][next], penalty.clone()));
+                }
+            }
+            invokeAll(subtasks);
+        }
+
+        /**
+         * Searches all completions of the partial path depth-first.
+         *
+         * @param depth The number of nodes in the partial path.
+         * @param length The length of the partial path.
+         */
+        private void search(int depth, double length) {
+            int last = path[depth - 1];
+            if (depth == n) {
+                offer(path, length + distances[last][0]); // Close the tour
+                return;
+            }
+            double[] penalty = penalties[depth];
+            if (length + lowerBound(depth, length, penalty, NODE_ITERATIONS) >= bestDistance) {
+                return; // This branch cannot lead to a shorter tour
+            }
+
+            exploredNodes.increment();
+            for (int next : nearestOrder[last]) {
+                if (!visited[next]) {
+                    path[depth] = next;
+                    visited[next] = true;
+                    System.arraycopy(penalty, 0, penalties[depth + 1], 0, n); // Start from the parent's penalties
+                    search(depth + 1, length + distances[last][next]);
+                    visited[next] = false;
+                }
+            }
+        }
+
+        /**
+         * Calculates a lower bound on the length needed to visit all unvisited nodes and return to node 0.
+         * Such a path consists of a spanning tree over the unvisited nodes and node 0, plus one edge from the last node,
+         * so the cheapest such structure is a lower bound. Penalties are added to the edges of each unvisited node and
+         * adjusted by subgradient steps, which pushes every unvisited node towards degree 2 and tightens the bound.
+         * If the cheapest structure turns out to be a path, it is the shortest completion and is offered as a tour.
+         *
+         * @param depth The number of nodes in the partial path.
+         * @param length The length of the partial path.
+         * @param penalty The penalties of the nodes, which are updated in place.
+         * @param iterations The maximum number of subgradient steps.
+         * @return The lower bound.
+         */
+        private double lowerBound(int depth, double length, double[] penalty, int iterations) {
+            int last = path[depth - 1];
+
+            // Collect node 0 and the unvisited nodes
+            int size = 1;
+            nodes[0] = 0;
+            for (int i = 1; i < n; i++) {
+                if (!visited[i]) {
+                    nodes[size++] = i;
+                }
+            }
+
+            double limit = bestDistance - length; // A bound above this prunes the branch
+            double best = Double.NEGATIVE_INFINITY;
+            double stepFactor = 2;
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                // Prim's algorithm over the collected nodes, with penalized edge lengths
+                for (int k = 0; k < size; k++) {
+                    inTree[k] = k == 0;
+                    degree[k] = 0;
+                    key[k] = distances[0][nodes[k]] + penalty[nodes[k]];
+                    parent[k] = 0;
+                }
+                double value = 0;
+                for (int added = 1; added < size; added++) {
+                    int closest = -1;
+                    for (int k = 1; k < size; k++) {
+                        if (!inTree[k] && (closest == -1 || key[k] < key[closest])) {
+                            closest = k;
+                        }
+                    }
+                    value += key[closest];
+                    inTree[closest] = true;
+                    degree[closest]++;
+                    degree[parent[closest]]++;
+                    for (int k = 1; k < size; k++) {
+                        double edge = distances[nodes[closest]][nodes[k]] + penalty[nodes[closest]] + penalty[nodes[k]];
+                        if (!inTree[k] && edge < key[k]) {
+                            key[k] = edge;
+                            parent[k] = closest;
+                        }
+                    }
+                }
+
+                // Connect the last node of the path to the tree with its cheapest penalized edge
+                int closest = 1;
+                for (int k = 2; k < size; k++) {
+                    if (distances[last][nodes[k]] + penalty[nodes[k]] < distances[last][nodes[closest]] + penalty[nodes[closest]]) {
+                        closest = k;
+                    }
+                }
+                value += distances[last][nodes[closest]] + penalty[nodes[closest]];
+                degree[closest]++;
+
+                // Remove the penalties again, since every unvisited node of a real path has degree 2
+                double norm = 0;
+                for (int k = 1; k < size; k++) {
+                    value -= 2 * penalty[nodes[k]];
+                    norm += (degree[k] - 2) * (degree[k] - 2);
+                }
+                best = Math.max(best, value);
+                if (best >= limit) {
+                    return best; // The branch can be pruned
+                }
+                if (norm == 0) {
+                    offerCompletion(depth, length, closest);
+                    return value;
+                }
+
+                // Raise the penalties of nodes with too many edges and lower those of nodes with too few
+                double step = stepFactor * (limit - value) / norm;
+                for (int k = 1; k < size; k++) {
+                    penalty[nodes[k]] += step * (degree[k] - 2);
+                }
+                stepFactor *= 0.9;
+            }
+
+            return best;
+        }
+
+        /**
+         * Offers the tour made of the partial path followed by the path in the last spanning tree.
+         * Every unvisited node has degree 2 in that tree, so following the tree parents from the node attached to
+         * the last node of the partial path visits all unvisited nodes and ends at node 0.
+         *
+         * @param depth The number of nodes in the partial path.
+         * @param length The length of the partial path.
+         * @param first The position in the tree of the node attached to the last node of the partial path.
+         */
+        private void offerCompletion(int depth, double length, int first) {
+            int[] tour = path.clone();
+            for (int k = first, d = depth; k != 0; k = parent[k], d++) {
+                length += distances[tour[d - 1]][nodes[k]];
+                tour[d] = nodes[k];
+            }
+            offer(tour, length + distances[tour[n - 1]][0]);
+        }
+    }
+}
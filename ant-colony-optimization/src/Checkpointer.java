@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Represents the writer of the checkpoints of a colony, which lets a long run continue after the JVM is restarted.
+ * The solver thread only copies the state of the colony into a reused direct buffer, and a background thread writes
+ * the buffer to a temporary file and moves it over the checkpoint file, so a crash never leaves a half-written checkpoint.
+ * If the previous checkpoint is still being written, the next one is skipped instead of making the solver wait.
+ * Checkpoints are read back through a memory-mapped file.
+ */
+public class Checkpointer {
+    // Instance variables
+    private final Path file;              // Path of the checkpoint file
+    private final Path temporary;         // Path of the file the next checkpoint is written to
+    private final ExecutorService writer; // Background thread that writes the checkpoints
+    private ByteBuffer buffer;            // State of the colony, reused for every checkpoint
+    private Future<?> pending;            // Write of the last checkpoint, or null
+
+    // Public constructor
+    /**
+     * Constructs a new Checkpointer that writes to the given file.
+     *
+     * @param file The path of the checkpoint file.
+     */
+    public Checkpointer(String file) {
+        this.file = Paths.get(file);
+        this.temporary = Paths.get(file + ".tmp");
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true); // Do not keep the JVM alive for a checkpoint
+            return thread;
+        });
+    }
+
+    // Public methods
+    /**
+     * Copies the state of the colony and writes it in the background.
+     *
+     * @param colony The colony, which must be started.
+     * @return True if the checkpoint is being written, false if it was skipped because the previous one is not written yet.
+     */
+    public boolean save(Colony colony) {
+        if (pending != null) {
+            if (!pending.isDone()) {
+                return false;
+            }
+            finishPending();
+        }
+        buffer = colony.saveState(buffer);
+        ByteBuffer state = buffer;
+        pending = writer.submit(() -> {
+            write(state);
+            return null;
+        });
+        return true;
+    }
+
+    /**
+     * Waits until the last checkpoint is written and stops the background thread.
+     */
+    public void close() {
+        if (pending != null) {
+            finishPending();
+        }
+        writer.shutdown();
+    }
+
+    /**
+     * Replaces the state of a started colony with the state in a checkpoint file.
+     *
+     * @param colony The colony, which must be started with the same settings as the colony that wrote the checkpoint.
+     * @param file The path of the checkpoint file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the checkpoint does not belong to a colony like the given one.
+     */
+    public static void load(Colony colony, String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            colony.restoreState(mapped);
+        }
+    }
+
+    /**
+     * Writes a state to the temporary file and moves it over the checkpoint file.
+     *
+     * @param state The state of the colony.
+     * @throws IOException if the file cannot be written.
+     */
+    private void write(ByteBuffer state) throws IOException {
+        ByteBuffer bytes = state.duplicate(); // Keep the position of the buffer itself
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false); // Make sure the data is on disk before it replaces the old checkpoint
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Waits for the last write, and reports it if it failed. A failed checkpoint does not stop the run.
+     */
+    private void finishPending() {
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            System.err.println("Writing the checkpoint " + file + " failed: " + e.getCause());
+        }
+        pending = null;
+    }
+}
@@ -0,0 +1,1106 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Represents one ant colony that searches for a short tour over a fixed set of distances.
+ * The colony keeps its own pheromone matrix, ants and best tour, so several colonies can run at the same time over the
+ * same read-only distances and candidate lists. The hyperparameters are public fields, which can be changed before start.
+ * They start at the defaults of AliGur.setHyperParameters, so a colony created outside of AliGur, such as by the tour
+ * planner of turkey-navigation, is configured the same way unless it overrides them.
+ * Nodes are numbered from 0 inside the colony.
+ */
+public class Colony {
+    // Constants
+    private static final double MIN_PHEROMONE_SCALE = 1e-150; // Pheromone scale at which it is folded back into the matrix
+    private static final int STATE_MAGIC = 0x41434F31;        // First four bytes of a saved state ("ACO1")
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean(); // Source of the allocated bytes of a thread
+
+    // Hyperparameters
+    public double alpha = 0.9;             // Influence of pheromone on the ants' decisions
+    public double beta = 2.9;              // Influence of distance on the ants' decisions
+    public double Q = 0.01;                // Amount of pheromone deposited by each ant
+    public double initialPheromoneDensity = 0.1; // Initial pheromone density on all edges
+    public double degradationFactor = 0.7; // Factor by which pheromone evaporates after each iteration
+    public int iterationCount = 100;       // Number of iterations train runs at most
+    public int antCount = 50;              // Number of ants in each iteration
+    public int threadCount = 1;            // Number of worker threads building tours (1 runs the ants one after another)
+    public boolean sparsePheromone;        // Whether pheromone is only kept on the edges to the candidates
+    public int localSearch;                // Local search applied to the tours (0 for none, 1 for 2-opt, 2 for 2-opt and Or-opt)
+    public boolean localSearchAllAnts;     // Whether every ant's tour is improved, instead of only the iteration best
+    public int[][] searchNeighbours;       // Neighbours searched by the local search (the candidate lists if null)
+    public int plateauIterations;          // Iterations without improvement after which train stops (0 never stops early)
+    public double convergenceEntropy = 0.6; // Pheromone entropy below which the colony counts as converged on a plateau
+    public long timeBudget;                // Wall-clock time in milliseconds after which train stops (0 for no limit)
+    public double targetDistance;          // Distance at or below which train stops (0 for no target)
+    public int metricsInterval;            // Number of iterations between two printed metric lines (0 prints none)
+    public int checkpointInterval;         // Number of iterations between two checkpoints written by train (0 for none)
+    public String checkpointFile;          // Path of the checkpoint file
+    public boolean vectorKernels;          // Whether the row loops use the Vector API, if VectorKernels is available
+    public double powTolerance;            // Relative error allowed in pheromone^alpha, which enables Kernels.fastPow (0 for Math.pow)
+    public LiveView liveView;              // View that draws the pheromone while train runs (null for none)
+    public KdTree nodeTree;                // Tree over the coordinates of the nodes, used by sparse colonies (null scans all nodes)
+
+    // Instance variables
+    public final int n;                           // Number of nodes
+    public final DistanceStore distances;         // Distance between each pair of nodes, shared with other colonies
+    public final int[][] candidateLists;          // Nearest neighbours of each node, or null to always consider all nodes
+    public double[][] pheromoneMatrix;            // Pheromone on each edge, as a multiple of pheromoneScale
+    public double pheromoneScale = 1;             // Common factor of all entries of the pheromone matrix
+    public double[][] heuristicMatrix;            // (1 / distance)^beta of each edge
+    public double[][] choiceInfoMatrix;           // pheromone^alpha * (1 / distance)^beta of each edge
+    public double bestDistance = Double.POSITIVE_INFINITY; // Length of the best tour found so far
+    public int[] bestTour;                        // Best tour found so far as n + 1 node indices, or null
+    public ArrayList<Double> bestDistances = new ArrayList<>(); // Best distance after each iteration
+    public String stopReason;                     // Reason why train stopped
+    private Random seeds;                         // Source of the seeds of the workers' random number generators
+    private ExecutorService antPool;              // Worker threads of the parallel colony mode, or null
+    private Ant[] workers;                        // Reusable ant state of each worker
+    private LocalSearch[] localSearches;          // Local search of each worker, or null
+    private Runnable[] workerTasks;               // Task that builds the tours of one worker's block of ants
+    private Future<?>[] workerFutures;            // Pending tasks of the current iteration
+    private int[][] antTours;                     // Tour of each ant in the current iteration
+    private double[] antDistances;                // Length of each ant's tour in the current iteration
+    private int[] changedRows = new int[0];       // Rows of the edges that received pheromone since the last refresh
+    private int[] changedColumns = new int[0];    // Columns of the edges that received pheromone since the last refresh
+    private int changedCount;                     // Number of edges that received pheromone since the last refresh
+    private boolean choiceInfoStale;              // Whether the whole choice-info matrix needs to be refreshed
+    private boolean measuring;                    // Whether the current iteration measures the allocation of the workers
+    private long[] workerAllocated;               // Bytes allocated by each worker in the current iteration
+    private Kernels kernels;                      // Inner loops over the rows of the matrices
+    private boolean fastPow;                      // Whether pheromone^alpha is calculated with Kernels.fastPow
+    private boolean treeFallback;                 // Whether the ants search nodeTree once their candidates are used up
+
+    // Public constructor
+    /**
+     * Constructs a new Colony over the given distances.
+     *
+     * @param distances The distances between the nodes, which are only read.
+     * @param candidateLists The nearest neighbours of each node sorted by distance, or null to always consider all nodes.
+     * @param seed The seed of the colony's random number generators.
+     */
+    public Colony(DistanceStore distances, int[][] candidateLists, long seed) {
+        this.n = distances.size();
+        this.distances = distances;
+        this.candidateLists = candidateLists;
+        this.seeds = new Random(seed);
+    }
+
+    // Public methods
+    /**
+     * Allocates the pheromone matrix, the choice-info matrix and the ants, and starts the worker threads.
+     * If the colony was already started, only the worker threads are started again if they were stopped.
+     *
+     * @throws IllegalStateException if sparse pheromone storage or local search is used without neighbour lists.
+     */
+    public void start() {
+        if (workers == null) {
+            if (sparsePheromone && candidateLists == null) {
+                throw new IllegalStateException("Sparse pheromone storage needs candidate lists (candidateCount > 0)");
+            }
+            kernels = Kernels.create(vectorKernels);
+            fastPow = powTolerance >= Kernels.fastPowError(alpha); // Only approximate the power if it is accurate enough
+            treeFallback = sparsePheromone && nodeTree != null;
+            initializePheromoneMatrix();
+            initializeChoiceInfo(); // Precompute the desirability of each edge for the first iteration
+            initializeAnts(); // Allocate the buffers that the ants reuse in every iteration
+        }
+
+        if (threadCount > 1 && antPool == null) {
+            // Start the worker pool used by the parallel colony mode
+            antPool = Executors.newFixedThreadPool(threadCount);
+        }
+    }
+
+    /**
+     * Stops the worker threads. The colony keeps its pheromone matrix and best tour.
+     */
+    public void close() {
+        if (antPool != null) {
+            antPool.shutdown(); // Release the worker threads once training is over
+            antPool = null;
+        }
+    }
+
+    /**
+     * Trains the colony by running up to iterationCount iterations, or until a stopping criterion is met.
+     * In each iteration, ants construct solutions by traversing the graph and laying pheromone trails.
+     * A colony whose state was restored from a checkpoint continues with the iteration after the checkpoint.
+     * If checkpointInterval is positive, a checkpoint is written in the background every checkpointInterval iterations.
+     */
+    public void train() {
+        start();
+
+        long trainStart = System.currentTimeMillis();
+        // Iteration in which the best distance last decreased, taken from the trace so that a resumed run stops where
+        // the uninterrupted run would have stopped
+        int lastImprovement = 0;
+        for (int i = 0; i < bestDistances.size(); i++) {
+            if (i == 0 || bestDistances.get(i) < bestDistances.get(i - 1)) {
+                lastImprovement = i;
+            }
+        }
+        double previousBest = bestDistance;
+        stopReason = "iteration count";
+        Checkpointer checkpointer = checkpointInterval > 0 ? new Checkpointer(checkpointFile) : null;
+
+        try {
+            // Run a specified number of iterations
+            for (int i = bestDistances.size(); i < iterationCount; i++) {
+                iterate(); // Construct solutions by ants
+                if (checkpointer != null && (i + 1) % checkpointInterval == 0) {
+                    checkpointer.save(this); // Copy the state and write it without waiting
+                }
+                if (liveView != null) {
+                    liveView.offer(this); // Copy a snapshot only if the view asked for one
+                }
+
+                if (bestDistance < previousBest) {
+                    previousBest = bestDistance;
+                    lastImprovement = i;
+                }
+                if (targetDistance > 0 && bestDistance <= targetDistance) {
+                    stopReason = "target distance";
+                    break;
+                }
+                if (timeBudget > 0 && System.currentTimeMillis() - trainStart >= timeBudget) {
+                    stopReason = "time budget";
+                    break;
+                }
+                // On a plateau, only stop once the pheromone shows that the colony has settled on its tours
+                if (plateauIterations > 0 && i - lastImprovement >= plateauIterations && pheromoneEntropy() <= convergenceEntropy) {
+                    stopReason = "plateau";
+                    break;
+                }
+            }
+        } finally {
+            close();
+            if (checkpointer != null) {
+                checkpointer.close(); // Wait for the last checkpoint to be written
+            }
+        }
+    }
+
+    /**
+     * Performs a cycle of ant behavior by letting each ant construct a solution.
+     * After all ants have completed their cycles, the pheromone density is degraded, and the best solution length is recorded.
+     * The time of each phase is measured, and the metrics of the iteration are committed as an IterationEvent
+     * when a flight recording is running, or printed every metricsInterval iterations.
+     */
+    public void iterate() {
+        IterationEvent event = new IterationEvent();
+        measuring = metricsInterval > 0 || event.isEnabled();
+        long allocatedBefore = measuring ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+        event.begin();
+
+        long constructionStart = System.nanoTime();
+        constructTours();
+
+        long depositStart = System.nanoTime();
+        // Deposit the pheromone of all ants in ant order, which gives the same result in both modes
+        for (int i = 0; i < antCount; i++) {
+            updatePheromoneMatrix(antTours[i], antDistances[i]);
+            updateBestPath(antTours[i], antDistances[i]);
+        }
+
+        long localSearchStart = System.nanoTime();
+        if (localSearches != null && !localSearchAllAnts) {
+            improveIterationBest(); // Improve only the best tour of this iteration
+        }
+
+        long evaporationStart = System.nanoTime();
+        degradePheromoneDensity();
+        updateChoiceInfo(); // Refresh the desirability of each edge for the next iteration
+        long end = System.nanoTime();
+
+        // Record the length of the best solution found in this iteration
+        bestDistances.add(bestDistance);
+
+        if (measuring) {
+            event.end();
+            event.iteration = bestDistances.size();
+            event.constructionTime = depositStart - constructionStart;
+            event.depositTime = localSearchStart - depositStart;
+            event.localSearchTime = evaporationStart - localSearchStart;
+            event.evaporationTime = end - evaporationStart;
+            event.toursPerSecond = antCount * 1e9 / Math.max(event.constructionTime, 1);
+            event.allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            if (antPool != null) {
+                for (long bytes : workerAllocated) {
+                    event.allocated += bytes;
+                }
+            }
+            event.bestDistance = bestDistance;
+            event.iterationBestDistance = Double.POSITIVE_INFINITY;
+            event.meanDistance = 0;
+            for (int i = 0; i < antCount; i++) {
+                event.iterationBestDistance = Math.min(event.iterationBestDistance, antDistances[i]);
+                event.meanDistance += antDistances[i] / antCount;
+            }
+            event.entropy = pheromoneEntropy();
+            event.commit();
+
+            if (metricsInterval > 0 && event.iteration % metricsInterval == 0) {
+                printMetrics(event);
+            }
+        }
+    }
+
+    /**
+     * Lets every ant construct a tour from the current choice-info matrix, without depositing pheromone.
+     * The tours and their lengths replace those of the previous iteration; nothing else of the colony changes.
+     */
+    public void constructTours() {
+        if (antPool == null) {
+            workerTasks[0].run(); // Let each ant construct a solution
+        } else {
+            runWorkers(); // Let the worker pool construct the solutions
+        }
+    }
+
+    /**
+     * Degrades the pheromone density on all edges in the pheromone matrix.
+     * This is done by multiplying the pheromone scale by (1 - degradationFactor), which degrades every edge at once.
+     * Before the scale gets so small that deposits would overflow, it is folded back into the pheromone matrix.
+     */
+    public void degradePheromoneDensity() {
+        pheromoneScale *= (1 - degradationFactor);
+        if (pheromoneScale < MIN_PHEROMONE_SCALE) {
+            // Apply the accumulated degradation to each edge in the pheromone matrix
+            for (int i = 0; i < n; i++) {
+                kernels.scale(pheromoneMatrix[i], pheromoneScale);
+            }
+            pheromoneScale = 1;
+            choiceInfoStale = true; // Every entry of the choice-info matrix changed
+        }
+    }
+
+    /**
+     * Recalculates every entry of the choice-info matrix from the pheromone matrix.
+     */
+    public void refreshChoiceInfo() {
+        choiceInfoStale = true;
+        updateChoiceInfo();
+    }
+
+    /**
+     * Lets a tour found elsewhere deposit pheromone, and adopts it as the best tour if it is shorter.
+     * The choice-info matrix is refreshed before the next iteration.
+     *
+     * @param tour The tour as n + 1 node indices, ending with its starting node
+     * @param length The length of the tour
+     */
+    public void depositTour(int[] tour, double length) {
+        updatePheromoneMatrix(tour, length);
+        updateBestPath(tour, length);
+        updateChoiceInfo();
+    }
+
+    /**
+     * Moves the pheromone on every edge towards the pheromone of another colony with the same storage layout.
+     *
+     * @param other The pheromone matrix of the other colony
+     * @param otherScale The pheromone scale of the other colony
+     * @param weight The share of the other colony's pheromone in the result, between 0 and 1
+     */
+    public void blendPheromone(double[][] other, double otherScale, double weight) {
+        double factor = weight * otherScale / pheromoneScale; // Convert the other entries to this colony's scale
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < pheromoneMatrix[i].length; j++) {
+                pheromoneMatrix[i][j] = (1 - weight) * pheromoneMatrix[i][j] + factor * other[i][j];
+            }
+        }
+        choiceInfoStale = true; // Every entry of the choice-info matrix changed
+        updateChoiceInfo();
+    }
+
+    /**
+     * Writes the state of a started colony into a buffer, so that training can later continue from exactly this point.
+     * The state holds the iteration number, the best distance after each iteration, the best tour, the pheromone matrix
+     * and the states of the random number generators. The buffer is reused if it is large enough.
+     *
+     * @param buffer A buffer from an earlier call, or null
+     * @return The buffer holding the state, ready to be read
+     * @throws IllegalStateException if the state is larger than 2 GB
+     */
+    public ByteBuffer saveState(ByteBuffer buffer) {
+        byte[][] randoms = new byte[workers.length + 1][];
+        randoms[0] = serialize(seeds);
+        for (int w = 0; w < workers.length; w++) {
+            randoms[w + 1] = serialize(workers[w].random);
+        }
+
+        long entries = 0;
+        for (double[] row : pheromoneMatrix) {
+            entries += row.length;
+        }
+        long size = 4 * 4 + 3 * 8 + 4L * (n + 1) + 8L * bestDistances.size() + 8L * entries;
+        for (byte[] random : randoms) {
+            size += 4 + random.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The state of the colony is too large for a checkpoint");
+        }
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect((int) size);
+        }
+
+        buffer.clear();
+        buffer.putInt(STATE_MAGIC).putInt(n).putInt(bestDistances.size()).putInt(randoms.length).putLong(entries);
+        buffer.putDouble(pheromoneScale).putDouble(bestDistance);
+        for (int i = 0; i <= n; i++) {
+            buffer.putInt(bestTour != null ? bestTour[i] : -1);
+        }
+        for (double distance : bestDistances) {
+            buffer.putDouble(distance);
+        }
+        for (double[] row : pheromoneMatrix) {
+            buffer.asDoubleBuffer().put(row); // Copy the row in bulk
+            buffer.position(buffer.position() + 8 * row.length);
+        }
+        for (byte[] random : randoms) {
+            buffer.putInt(random.length).put(random);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Replaces the state of a started colony with a state written by saveState.
+     * The colony must have the same nodes, pheromone storage and number of workers as the colony that saved the state.
+     *
+     * @param buffer The buffer holding the state
+     * @throws IllegalArgumentException if the state does not belong to a colony like this one
+     */
+    public void restoreState(ByteBuffer buffer) {
+        if (buffer.getInt() != STATE_MAGIC || buffer.getInt() != n) {
+            throw new IllegalArgumentException("The checkpoint does not belong to an instance with " + n + " nodes");
+        }
+        int iterations = buffer.getInt();
+        if (buffer.getInt() != workers.length + 1) {
+            throw new IllegalArgumentException("The checkpoint was written with a different number of threads");
+        }
+        long entries = 0;
+        for (double[] row : pheromoneMatrix) {
+            entries += row.length;
+        }
+        if (buffer.getLong() != entries) {
+            throw new IllegalArgumentException("The checkpoint was written with a different pheromone storage");
+        }
+        pheromoneScale = buffer.getDouble();
+        bestDistance = buffer.getDouble();
+        int[] tour = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            tour[i] = buffer.getInt();
+        }
+        bestTour = tour[0] >= 0 ? tour : null;
+        bestDistances = new ArrayList<>(iterations);
+        for (int i = 0; i < iterations; i++) {
+            bestDistances.add(buffer.getDouble());
+        }
+        for (double[] row : pheromoneMatrix) {
+            buffer.asDoubleBuffer().get(row); // Copy the row in bulk
+            buffer.position(buffer.position() + 8 * row.length);
+        }
+        seeds = deserialize(buffer);
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = new Ant(n, deserialize(buffer));
+        }
+
+        choiceInfoStale = true; // Every entry of the choice-info matrix changed
+        changedCount = 0;
+        updateChoiceInfo();
+    }
+
+    /**
+     * Takes over the pheromone and the best tour of a colony trained on an earlier version of the instance, in which
+     * some nodes were added or removed, so that training does not start over from a uniform pheromone matrix.
+     * The earlier best tour is patched first: removed nodes are dropped, and each added node is inserted where it
+     * lengthens the tour the least. The added nodes and their neighbours in the patched tour, as well as the nodes next
+     * to a removed node, are the affected nodes. Their rows and columns are reseeded with the mean pheromone of the other
+     * edges, and every other edge keeps its earlier pheromone. Finally, the patched tour is improved by the local search
+     * if there is one, and deposits pheromone as the best tour of this colony. This colony must be started.
+     *
+     * @param previous The earlier colony, which must be started
+     * @param previousNodes The index of each node of this colony in the earlier colony, or -1 for an added node
+     */
+    public void warmStart(Colony previous, int[] previousNodes) {
+        boolean[] affected = new boolean[n];
+        int[] tour = previous.bestTour != null ? patchTour(previous, previousNodes, affected) : null;
+
+        // Find the mean pheromone of the edges that remain, in the scale of this colony
+        double factor = previous.pheromoneScale / pheromoneScale;
+        double sum = 0;
+        long kept = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < pheromoneMatrix[i].length; j++) {
+                int column = previousEdge(previous, previousNodes, affected, i, edgeTarget(i, j));
+                if (column >= 0) {
+                    sum += previous.pheromoneMatrix[previousNodes[i]][column] * factor;
+                    kept++;
+                }
+            }
+        }
+        double reseeded = kept > 0 ? sum / kept : initialPheromoneDensity / pheromoneScale;
+
+        // Copy the remaining edges, and reseed the affected ones
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < pheromoneMatrix[i].length; j++) {
+                int column = previousEdge(previous, previousNodes, affected, i, edgeTarget(i, j));
+                pheromoneMatrix[i][j] = column >= 0 ? previous.pheromoneMatrix[previousNodes[i]][column] * factor : reseeded;
+            }
+        }
+        choiceInfoStale = true; // Every entry of the choice-info matrix changed
+        changedCount = 0;
+
+        bestTour = null;
+        bestDistance = Double.POSITIVE_INFINITY;
+        if (tour != null) {
+            double length = localSearches != null ? localSearches[0].improve(tour) : tourLength(tour);
+            depositTour(tour, length);
+        } else {
+            updateChoiceInfo();
+        }
+    }
+
+    /**
+     * Calculates the mean normalized entropy of the pheromone on the edges leaving each node.
+     * The entropy of a row is 1 when all its edges carry the same pheromone, and approaches 0 when the pheromone
+     * is concentrated on a few edges, which means that the ants keep building the same tours.
+     *
+     * @return The mean normalized entropy over all rows, between 0 and 1
+     */
+    public double pheromoneEntropy() {
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            double[] row = pheromoneMatrix[i];
+            double sum = 0;
+            int edges = 0;
+            for (int j = 0; j < row.length; j++) {
+                if (edgeTarget(i, j) != i) {
+                    sum += row[j];
+                    edges++;
+                }
+            }
+            if (edges < 2 || sum <= 0) {
+                continue; // A single edge carries no choice
+            }
+            double entropy = 0;
+            for (int j = 0; j < row.length; j++) {
+                if (edgeTarget(i, j) != i && row[j] > 0) {
+                    double p = row[j] / sum;
+                    entropy -= p * Math.log(p);
+                }
+            }
+            total += entropy / Math.log(edges);
+        }
+        return total / n;
+    }
+
+    /**
+     * Finds the node at the other end of an edge of the pheromone matrix.
+     *
+     * @param i The index of the node, which is also the row of the pheromone matrix
+     * @param j The column of the pheromone matrix
+     * @return The index of the node that the edge leads to
+     */
+    public int edgeTarget(int i, int j) {
+        return sparsePheromone ? candidateLists[i][j] : j;
+    }
+
+    /**
+     * Finds the column of the pheromone matrix that holds the edge between two nodes.
+     *
+     * @param i The index of the first node
+     * @param j The index of the second node
+     * @return The column in row i of the pheromone matrix, or -1 if the edge is not stored
+     */
+    public int edgeIndex(int i, int j) {
+        if (!sparsePheromone) {
+            return j;
+        }
+        int[] candidates = candidateLists[i];
+        for (int c = 0; c < candidates.length; c++) {
+            if (candidates[c] == j) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds a tour of this colony's nodes from the best tour of an earlier colony. Nodes that no longer exist are dropped,
+     * and nodes that are new are inserted one after another at the position where they lengthen the tour the least.
+     * Every node whose neighbours in the tour changed is marked as affected.
+     *
+     * @param previous The earlier colony, which has a best tour
+     * @param previousNodes The index of each node of this colony in the earlier colony, or -1 for an added node
+     * @param affected An array of n entries, in which the affected nodes are set to true
+     * @return The patched tour as n + 1 node indices, ending with its starting node
+     */
+    private int[] patchTour(Colony previous, int[] previousNodes, boolean[] affected) {
+        int[] nodes = new int[previous.n]; // Index of each earlier node in this colony, or -1 if it was removed
+        Arrays.fill(nodes, -1);
+        for (int i = 0; i < n; i++) {
+            if (previousNodes[i] >= 0) {
+                nodes[previousNodes[i]] = i;
+            }
+        }
+
+        // Drop the removed nodes from the earlier tour
+        int[] tour = new int[n + 1];
+        int length = 0;
+        boolean removed = false; // Whether a node was removed since the last remaining node
+        boolean removedFirst = false; // Whether a node was removed before the first remaining node
+        for (int k = 0; k < previous.n; k++) {
+            int node = nodes[previous.bestTour[k]];
+            if (node < 0) {
+                removed = true;
+                continue;
+            }
+            if (removed && length > 0) {
+                affected[tour[length - 1]] = true;
+                affected[node] = true;
+            } else if (removed) {
+                removedFirst = true;
+            }
+            removed = false;
+            tour[length++] = node;
+        }
+        if ((removed || removedFirst) && length > 0) {
+            // The tour is closed, so the gap lies between the last and the first remaining node
+            affected[tour[0]] = true;
+            affected[tour[length - 1]] = true;
+        }
+
+        // Insert each added node at its cheapest position
+        for (int node = 0; node < n; node++) {
+            if (previousNodes[node] >= 0) {
+                continue;
+            }
+            affected[node] = true;
+            int position = length; // Position the node is inserted at
+            if (length >= 2) {
+                double cheapest = Double.POSITIVE_INFINITY;
+                for (int p = 0; p < length; p++) {
+                    int a = tour[p];
+                    int b = tour[(p + 1) % length];
+                    double cost = distances.get(a, node) + distances.get(node, b) - distances.get(a, b);
+                    if (cost < cheapest) {
+                        cheapest = cost;
+                        position = p + 1;
+                    }
+                }
+                affected[tour[position - 1]] = true;
+                affected[tour[position % length]] = true;
+            }
+            System.arraycopy(tour, position, tour, position + 1, length - position);
+            tour[position] = node;
+            length++;
+        }
+        tour[n] = tour[0]; // Close the tour
+        return tour;
+    }
+
+    /**
+     * Finds the column of the earlier pheromone matrix whose pheromone an edge of this colony keeps at a warm start.
+     *
+     * @param previous The earlier colony
+     * @param previousNodes The index of each node of this colony in the earlier colony, or -1 for an added node
+     * @param affected Whether each node of this colony is affected by the change
+     * @param i The index of the node the edge starts from
+     * @param j The index of the node the edge leads to
+     * @return The column in the earlier row of node i, or -1 if the edge is reseeded
+     */
+    private static int previousEdge(Colony previous, int[] previousNodes, boolean[] affected, int i, int j) {
+        if (affected[i] || affected[j] || previousNodes[i] < 0 || previousNodes[j] < 0) {
+            return -1;
+        }
+        return previous.edgeIndex(previousNodes[i], previousNodes[j]);
+    }
+
+    /**
+     * Calculates the length of a closed tour.
+     *
+     * @param tour The tour as n + 1 node indices, ending with its starting node
+     * @return The length of the tour
+     */
+    private double tourLength(int[] tour) {
+        double length = 0;
+        for (int i = 0; i < n; i++) {
+            length += distances.get(tour[i], tour[i + 1]);
+        }
+        return length;
+    }
+
+    /**
+     * Initializes the pheromone matrix with a uniform initial density.
+     * The pheromone matrix represents the amount of pheromone on each edge, as a multiple of pheromoneScale,
+     * so that evaporation only needs to shrink the scale.
+     * With sparse pheromone storage, row i only has one entry per candidate of node i, in the order of its candidate list.
+     * Without it, this matrix and the two of initializeChoiceInfo take 24 * n^2 bytes together, which rules out large instances.
+     */
+    private void initializePheromoneMatrix() {
+        pheromoneMatrix = new double[n][]; // Initialize the pheromone matrix
+        pheromoneScale = 1;
+        for (int i = 0; i < n; i++) {
+            pheromoneMatrix[i] = new double[sparsePheromone ? candidateLists[i].length : n];
+            for (int j = 0; j < pheromoneMatrix[i].length; j++) {
+                // Set the initial pheromone density for each edge
+                pheromoneMatrix[i][j] = initialPheromoneDensity;
+            }
+        }
+    }
+
+    /**
+     * Initializes the heuristic matrix and the choice-info matrix used during tour construction.
+     * The heuristic matrix holds (1 / distance)^beta for each edge and only depends on the distances,
+     * so it is computed once. The choice-info matrix combines it with the pheromone matrix.
+     * Both matrices have the same shape as the pheromone matrix.
+     */
+    private void initializeChoiceInfo() {
+        heuristicMatrix = new double[n][];
+        choiceInfoMatrix = new double[n][];
+        for (int i = 0; i < n; i++) {
+            heuristicMatrix[i] = new double[pheromoneMatrix[i].length];
+            choiceInfoMatrix[i] = new double[pheromoneMatrix[i].length];
+            for (int j = 0; j < heuristicMatrix[i].length; j++) {
+                // Store the heuristic desirability of the edge
+                heuristicMatrix[i][j] = 1 / Math.pow(distances.get(i, edgeTarget(i, j)), beta);
+            }
+        }
+        choiceInfoStale = true; // Fill the whole choice-info matrix
+        updateChoiceInfo();
+    }
+
+    /**
+     * Refreshes the choice-info matrix from the current pheromone levels.
+     * Each entry holds pheromone^alpha * (1 / distance)^beta, so ants only need a lookup per candidate node.
+     * The entries are computed from the scaled pheromone values. Since evaporation changes every value by the same factor,
+     * the probabilities of the ants stay the same, and only the edges that received pheromone need to be refreshed.
+     */
+    private void updateChoiceInfo() {
+        if (liveView != null) {
+            // Let the view update its strongest edges from the same changes
+            liveView.pheromoneChanged(this, changedRows, changedColumns, changedCount, choiceInfoStale);
+        }
+        if (choiceInfoStale) {
+            for (int i = 0; i < n; i++) {
+                kernels.choiceInfo(pheromoneMatrix[i], heuristicMatrix[i], choiceInfoMatrix[i], alpha, fastPow);
+            }
+            choiceInfoStale = false;
+        } else {
+            // Only refresh the edges that received pheromone in this iteration
+            for (int k = 0; k < changedCount; k++) {
+                int i = changedRows[k];
+                int j = changedColumns[k];
+                double pheromone = pheromoneMatrix[i][j];
+                choiceInfoMatrix[i][j] = (fastPow ? Kernels.fastPow(pheromone, alpha) : Math.pow(pheromone, alpha)) * heuristicMatrix[i][j];
+            }
+        }
+        changedCount = 0;
+    }
+
+    /**
+     * Allocates the buffers used during tour construction, so that no memory is allocated while the colony runs.
+     * Each worker gets its own ant state, random number generator and local search, and each ant gets its own tour array.
+     */
+    private void initializeAnts() {
+        int workerCount = Math.max(threadCount, 1);
+        workers = new Ant[workerCount];
+        localSearches = null;
+        workerTasks = new Runnable[workerCount];
+        workerFutures = new Future<?>[workerCount];
+        workerAllocated = new long[workerCount];
+        antTours = new int[antCount][n + 1];
+        antDistances = new double[antCount];
+
+        if (localSearch > 0) {
+            // Search moves among the given neighbours, or among the candidate lists without them
+            int[][] neighbours = searchNeighbours != null ? searchNeighbours : candidateLists;
+            if (neighbours == null) {
+                throw new IllegalStateException("Local search needs search neighbours or candidate lists");
+            }
+            localSearches = new LocalSearch[workerCount];
+            for (int w = 0; w < workerCount; w++) {
+                localSearches[w] = new LocalSearch(distances, neighbours, localSearch == 2);
+            }
+        }
+
+        for (int w = 0; w < workerCount; w++) {
+            int worker = w;
+            int from = w * antCount / workerCount;
+            int to = (w + 1) * antCount / workerCount;
+            workers[w] = new Ant(n, new Random(seeds.nextLong()));
+            // Each worker constructs the tours of one contiguous block of ants
+            workerTasks[w] = () -> {
+                long allocatedBefore = measuring ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+                for (int i = from; i < to; i++) {
+                    antDistances[i] = buildTour(worker, antTours[i]);
+                }
+                if (measuring) {
+                    workerAllocated[worker] = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                }
+            };
+        }
+    }
+
+    /**
+     * Lets the ants of one iteration construct their solutions on the worker pool.
+     * The ants are split into one contiguous block per worker. Since tour construction only reads the choice-info matrix,
+     * every worker keeps its ants' tours locally and the deposits are merged into the pheromone matrix once,
+     * after all workers are done.
+     */
+    private void runWorkers() {
+        // Submit one block of ants to each worker
+        for (int w = 0; w < workerTasks.length; w++) {
+            workerFutures[w] = antPool.submit(workerTasks[w]);
+        }
+
+        // Wait for all workers to finish their tours
+        for (Future<?> future : workerFutures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Prints the metrics of an iteration on one line.
+     *
+     * @param event The metrics of the iteration
+     */
+    private void printMetrics(IterationEvent event) {
+        System.out.printf("Iteration %d: best %.5f, iteration best %.5f, mean %.5f, entropy %.3f, "
+                        + "construction %.3f ms, deposit %.3f ms, local search %.3f ms, evaporation %.3f ms, "
+                        + "%.0f tours/s, %d KB allocated%n",
+                event.iteration, event.bestDistance, event.iterationBestDistance, event.meanDistance, event.entropy,
+                event.constructionTime / 1e6, event.depositTime / 1e6, event.localSearchTime / 1e6,
+                event.evaporationTime / 1e6, event.toursPerSecond, event.allocated / 1024);
+    }
+
+    /**
+     * Improves the shortest tour of the current iteration with the local search.
+     * The improved tour deposits pheromone once more, on top of the deposit of the ant that constructed it.
+     */
+    private void improveIterationBest() {
+        int best = 0;
+        for (int i = 1; i < antCount; i++) {
+            if (antDistances[i] < antDistances[best]) {
+                best = i;
+            }
+        }
+        antDistances[best] = localSearches[0].improve(antTours[best]);
+        updatePheromoneMatrix(antTours[best], antDistances[best]);
+        updateBestPath(antTours[best], antDistances[best]);
+    }
+
+    /**
+     * Lets the ant state of a worker construct a tour, and improves it with the worker's local search if every ant's tour is improved.
+     *
+     * @param worker The index of the worker
+     * @param tour An array of n + 1 entries that receives the tour
+     * @return The length of the tour
+     */
+    private double buildTour(int worker, int[] tour) {
+        double distance = constructTour(workers[worker], tour);
+        if (localSearches != null && localSearchAllAnts) {
+            distance = localSearches[worker].improve(tour);
+        }
+        return distance;
+    }
+
+    /**
+     * Lets a single ant construct a closed tour without touching the shared state.
+     * The choice-info matrix and the distances are only read, so several ants can run this method at the same time.
+     *
+     * @param ant The reusable state of the ant, which must not be shared with another thread
+     * @param tour An array of n + 1 entries that receives the ant's tour, ending with its starting node
+     * @return The length of the constructed tour
+     */
+    private double constructTour(Ant ant, int[] tour) {
+        double distance = 0;
+        int step = 0; // Initialize the number of nodes in the tour
+        int nextNode = ant.random.nextInt(n); // Select a random starting node
+        int startingNode = nextNode; // Store the starting node
+        int previousNode = 0; // Initialize the previous node
+        ant.reset(); // Mark all nodes as unvisited
+        if (treeFallback) {
+            nodeTree.resetCounts(ant.unvisitedCounts);
+        }
+
+        // While there are still unvisited nodes
+        while (nextNode > -1) {
+            tour[step++] = nextNode; // Add the current node to the path
+            ant.visit(nextNode); // Mark the current node as visited
+            if (treeFallback) {
+                nodeTree.remove(nextNode, ant.unvisitedCounts);
+            }
+            previousNode = nextNode; // Update the previous node
+            nextNode = -1;
+
+            if (step == n) {
+                break; // All nodes have been visited
+            }
+            if (candidateLists != null) {
+                nextNode = findNextCandidate(ant, previousNode); // Select the next node among the nearest neighbours
+            }
+            if (nextNode == -1 && sparsePheromone) {
+                // All nearest neighbours are visited, and the other nodes share the background pheromone level
+                nextNode = findNearestUnvisited(ant, previousNode);
+            } else if (nextNode == -1) {
+                // If all nearest neighbours are visited, consider every node
+                double total = calculateProbabilities(ant, previousNode); // Calculate the weights for selecting the next node
+                nextNode = findNext(ant.cumulativeWeights, total, ant.random); // Select the next node based on the weights
+            }
+            if (nextNode == -1) {
+                nextNode = findFirstUnvisited(ant); // All probabilities underflowed, so take any unvisited node
+            }
+
+            // Update the distance of the path
+            distance += distances.get(previousNode, nextNode);
+        }
+
+        distance += distances.get(startingNode, previousNode); // Add the distance from the last node back to the starting node
+        tour[n] = startingNode; // Add the starting node to complete the path
+        return distance;
+    }
+
+    /**
+     * Finds the unvisited node with the smallest index.
+     *
+     * @param ant The reusable state of the ant
+     * @return The index of the first unvisited node, or -1 if all nodes have been visited
+     */
+    private int findFirstUnvisited(Ant ant) {
+        for (int i = 0; i < n; i++) {
+            if (!ant.isVisited(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the unvisited node nearest to the current node, which a sparse colony goes to once all candidates are visited.
+     * The remaining nodes have no stored pheromone, so the nearest one is the most desirable of them. With a k-d tree the
+     * search takes O(log n) time on average. Without one every node is scanned, comparing plain distances.
+     *
+     * @param ant The reusable state of the ant
+     * @param current The index of the current node
+     * @return The index of the nearest unvisited node, or -1 if all nodes have been visited
+     */
+    private int findNearestUnvisited(Ant ant, int current) {
+        if (treeFallback) {
+            return nodeTree.nearestUnvisited(current, ant.visited, ant.unvisitedCounts);
+        }
+        int nearest = -1;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (!ant.isVisited(i) && distances.get(current, i) < nearestDistance) {
+                nearestDistance = distances.get(current, i);
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Replaces the best solution found so far if the given tour is shorter.
+     * The tour is copied, since the ant reuses its array in the next iteration.
+     *
+     * @param tour The ant's tour, represented as an array of node indices
+     * @param distance The length of the ant's tour
+     */
+    private void updateBestPath(int[] tour, double distance) {
+        // Update the best solution distance and path if the current path is better
+        if (distance < bestDistance) {
+            bestDistance = distance;
+            bestTour = tour.clone();
+        }
+    }
+
+    /**
+     * Calculates the weights of selecting each unvisited node as the next destination for an ant.
+     * Weights are based on the amount of pheromone on the edge and the inverse of the distance to the node,
+     * both of which are already combined in the choice-info matrix.
+     * The weights are not normalized. Instead, the running sum of the weights is stored, so that the next node can be
+     * selected by a binary search, and the whole step needs a single pass over the nodes.
+     *
+     * @param ant The reusable state of the ant, whose cumulative weight buffer is filled
+     * @param next The index of the current node
+     * @return The sum of the weights of all unvisited nodes
+     */
+    private double calculateProbabilities(Ant ant, int next) {
+        // Look up the weights in the choice-info row, which the kernels can do a whole vector at a time
+        return kernels.cumulativeWeights(choiceInfoMatrix[next], ant.visited, ant.cumulativeWeights);
+    }
+
+    /**
+     * Finds the index of the next node to visit based on the running sum of the weights.
+     * Randomly selects a node with a probability proportional to its weight, by searching for the first running sum
+     * that exceeds a random point between 0 and the total weight.
+     * This selects the same nodes with the same probabilities as scanning the normalized probabilities, in O(log n) time.
+     *
+     * @param cumulativeWeights The running sum of the weights, as filled by calculateProbabilities
+     * @param total The sum of all weights
+     * @param random The random number generator of the ant
+     * @return The index of the next node to visit, or -1 if no node has a positive weight
+     */
+    private int findNext(double[] cumulativeWeights, double total, Random random) {
+        double randomNumber = random.nextDouble() * total; // Generate a random number between 0 and the total weight
+        if (!(randomNumber < total)) {
+            return -1; // All weights underflowed, or the product rounded up to the total
+        }
+
+        // Binary search for the first running sum that exceeds the random number
+        int low = 0;
+        int high = n - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] > randomNumber) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return low; // Return the index of the next node to visit
+    }
+
+    /**
+     * Finds the index of the next node to visit among the unvisited nearest neighbours of the current node.
+     * Randomly selects a node with a probability proportional to its choice-info value.
+     *
+     * @param ant The reusable state of the ant
+     * @param current The index of the current node
+     * @return The index of the next node to visit, or -1 if all nearest neighbours have been visited
+     */
+    private int findNextCandidate(Ant ant, int current) {
+        int[] candidates = candidateLists[current];
+        double[] choiceInfo = choiceInfoMatrix[current];
+        double sum = 0; // Initialize a variable to store the sum of the unvisited neighbours' values
+        int last = -1; // Initialize a variable to store the last unvisited neighbour
+
+        for (int c = 0; c < candidates.length; c++) {
+            if (!ant.isVisited(candidates[c])) {
+                sum += choiceInfo[sparsePheromone ? c : candidates[c]];
+                last = candidates[c];
+            }
+        }
+        if (sum == 0) {
+            return last; // No neighbour left, or all of them are too unattractive to compare
+        }
+
+        double randomNumber = ant.random.nextDouble() * sum; // Generate a random number between 0 and the sum
+        double cumulative = 0; // Initialize a variable to track the cumulative sum of values
+
+        for (int c = 0; c < candidates.length; c++) {
+            if (!ant.isVisited(candidates[c])) {
+                cumulative += choiceInfo[sparsePheromone ? c : candidates[c]];
+                if (cumulative > randomNumber) {
+                    return candidates[c];
+                }
+            }
+        }
+
+        return last; // Guard against rounding errors in the cumulative sum
+    }
+
+    /**
+     * Updates the pheromone matrix based on the ant's path and the length of the path.
+     * Pheromone levels are adjusted using a delta value calculated from the quality of the path.
+     * With sparse pheromone storage, deposits on edges outside the candidate lists are dropped.
+     *
+     * @param tour The ant's tour, represented as an array of node indices
+     * @param length The length of the ant's tour
+     */
+    private void updatePheromoneMatrix(int[] tour, double length) {
+        int n = tour.length; // Get the number of nodes in the path
+        double delta = Q / length; // Calculate the delta value based on the quality of the path
+
+        // Update pheromone levels on each edge of the path
+        for (int i = 0; i < n - 1; i++) {
+            // Update pheromone levels for the edge between consecutive nodes
+            depositPheromone(tour[i], tour[i + 1], delta);
+            depositPheromone(tour[i + 1], tour[i], delta);
+        }
+    }
+
+    /**
+     * Adds pheromone to the edge from one node to another, if the pheromone matrix stores that edge.
+     *
+     * @param i The index of the node the edge starts from
+     * @param j The index of the node the edge leads to
+     * @param delta The amount of pheromone to add
+     */
+    private void depositPheromone(int i, int j, double delta) {
+        int column = edgeIndex(i, j);
+        if (column >= 0) {
+            pheromoneMatrix[i][column] += delta / pheromoneScale; // Store the deposit relative to the current scale
+
+            // Remember the edge, so that its choice-info entry is refreshed
+            if (changedCount == changedRows.length) {
+                changedRows = Arrays.copyOf(changedRows, Math.max(16, 2 * changedCount));
+                changedColumns = Arrays.copyOf(changedColumns, changedRows.length);
+            }
+            changedRows[changedCount] = i;
+            changedColumns[changedCount] = column;
+            changedCount++;
+        }
+    }
+
+    /**
+     * Converts the state of a random number generator into bytes.
+     *
+     * @param random The random number generator
+     * @return The serialized generator
+     */
+    private static byte[] serialize(Random random) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream output = new ObjectOutputStream(bytes);
+            output.writeObject(random);
+            output.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a random number generator written by saveState from a buffer.
+     *
+     * @param buffer The buffer, positioned at the length of the serialized generator
+     * @return The random number generator, in the state it had when it was saved
+     */
+    private static Random deserialize(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Random) input.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("The checkpoint holds an unknown random number generator", e);
+        }
+    }
+}
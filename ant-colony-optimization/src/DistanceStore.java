@@ -0,0 +1,32 @@
+/**
+ * Represents the storage of the distances between every pair of nodes of a symmetric graph.
+ * Different implementations trade memory for lookup speed, which decides how many nodes an instance can have.
+ * At 100,000 nodes the full matrix needs 80 GB, and the packed and off-heap triangles still need about 20 GB, so only the
+ * lazy store stays linear in n. A colony also needs sparse pheromone storage to run at that size, since its dense
+ * pheromone, heuristic and choice-info matrices take another 240 GB. Only the lazy store combined with sparsePheromone
+ * solves 100,000 nodes in a few GB.
+ */
+public interface DistanceStore {
+    /**
+     * Returns the distance between two nodes.
+     *
+     * @param i The index of the first node.
+     * @param j The index of the second node.
+     * @return The distance between the two nodes.
+     */
+    double get(int i, int j);
+
+    /**
+     * Returns the number of nodes whose distances are stored.
+     *
+     * @return The number of nodes.
+     */
+    int size();
+
+    /**
+     * Returns the approximate number of bytes used to hold the distances.
+     *
+     * @return The memory footprint of the store in bytes.
+     */
+    long memoryBytes();
+}
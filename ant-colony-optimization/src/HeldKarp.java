@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Represents the Held-Karp dynamic programming solver, which finds the exact shortest tour in O(2^n * n^2) time.
+ * The tour always starts at node 0. For every subset S of the other nodes and every node j in S, the table holds the
+ * length of the shortest path that starts at node 0, visits exactly the nodes of S, and ends at node j.
+ * All subsets with the same number of nodes only depend on smaller subsets, so each such layer is filled in parallel.
+ */
+public class HeldKarp {
+    // Instance variables
+    private final int n;                 // Number of nodes
+    private final int m;                 // Number of nodes other than the starting node
+    private final double[][] distances;  // Distance between each pair of nodes
+    private double[] table;              // table[S * m + j] is the shortest path over S ending at node j + 1
+    public double bestDistance = Double.POSITIVE_INFINITY; // Length of the shortest tour
+    public ArrayList<Integer> bestPath = new ArrayList<>(); // Shortest tour, numbered from 1 and ending with node 1
+
+    // Public constructor
+    /**
+     * Constructs a new HeldKarp solver over the given distances.
+     *
+     * @param store The distances between the nodes.
+     * @throws IllegalArgumentException if the table would not fit into a single array.
+     */
+    public HeldKarp(DistanceStore store) {
+        n = store.size();
+        m = Math.max(n - 1, 0);
+        if (m > 26) {
+            throw new IllegalArgumentException("Held-Karp cannot solve " + n + " nodes, the limit is 27");
+        }
+
+        // Copy the distances into a local matrix, since every entry is read many times
+        distances = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distances[i][j] = store.get(i, j);
+            }
+        }
+    }
+
+    // Public methods
+    /**
+     * Returns the number of bytes the dynamic programming table needs.
+     *
+     * @return The memory footprint of the table in bytes.
+     */
+    public long memoryBytes() {
+        return 8L * (1L << m) * m;
+    }
+
+    /**
+     * Fills the dynamic programming table and reconstructs the shortest tour from it.
+     */
+    public void solve() {
+        if (n == 1) {
+            bestDistance = 0;
+            bestPath = new ArrayList<>(Arrays.asList(1, 1));
+            return;
+        }
+
+        table = new double[(1 << m) * m];
+        Arrays.fill(table, Double.POSITIVE_INFINITY);
+
+        // The shortest path over a single node is the edge from the starting node
+        for (int j = 0; j < m; j++) {
+            table[(1 << j) * m + j] = distances[0][j + 1];
+        }
+
+        // Fill the table layer by layer, from subsets of 2 nodes up to the subset of all nodes
+        for (int size = 2; size <= m; size++) {
+            int layer = size;
+            IntStream.range(0, 1 << m).parallel()
+                    .filter(subset -> Integer.bitCount(subset) == layer)
+                    .forEach(this::fillSubset);
+        }
+
+        reconstructPath();
+        table = null; // Release the table, which can take gigabytes
+    }
+
+    /**
+     * Fills the table entries of one subset from the entries of the subsets with one node less.
+     *
+     * @param subset The bitmask of the subset.
+     */
+    private void fillSubset(int subset) {
+        for (int j = 0; j < m; j++) {
+            if ((subset & (1 << j)) == 0) {
+                continue;
+            }
+            int previousSubset = subset ^ (1 << j);
+            int previousBase = previousSubset * m;
+            double best = Double.POSITIVE_INFINITY;
+            // Try every node of the smaller subset as the node visited right before node j
+            for (int i = 0; i < m; i++) {
+                if ((previousSubset & (1 << i)) != 0) {
+                    double length = table[previousBase + i] + distances[i + 1][j + 1];
+                    if (length < best) {
+                        best = length;
+                    }
+                }
+            }
+            table[subset * m + j] = best;
+        }
+    }
+
+    /**
+     * Walks back through the filled table to find the nodes of the shortest tour.
+     */
+    private void reconstructPath() {
+        int subset = (1 << m) - 1;
+        int last = -1;
+
+        // Find the node that closes the shortest tour
+        for (int j = 0; j < m; j++) {
+            double length = table[subset * m + j] + distances[j + 1][0];
+            if (length < bestDistance) {
+                bestDistance = length;
+                last = j;
+            }
+        }
+
+        // Repeatedly find the node whose entry explains the entry of the current node
+        int[] reversed = new int[m];
+        for (int k = m - 1; k >= 0; k--) {
+            reversed[k] = last;
+            int previousSubset = subset ^ (1 << last);
+            int previous = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < m; i++) {
+                if ((previousSubset & (1 << i)) != 0) {
+                    double length = table[previousSubset * m + i] + distances[i + 1][last + 1];
+                    if (length < best) {
+                        best = length;
+                        previous = i;
+                    }
+                }
+            }
+            subset = previousSubset;
+            last = previous;
+        }
+
+        bestPath = new ArrayList<>();
+        bestPath.add(1);
+        for (int node : reversed) {
+            bestPath.add(node + 2); // Shift from the table's numbering to human-readable numbering
+        }
+        bestPath.add(1);
+    }
+}
@@ -0,0 +1,58 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Represents the metrics of one iteration of a colony, as a JDK Flight Recorder event.
+ * The events are recorded when the program runs with a flight recording, for example with
+ * java -XX:StartFlightRecording=filename=aco.jfr AliGur, and can be inspected with "jfr print --events aco.Iteration aco.jfr"
+ * or JDK Mission Control. The same metrics are printed by the colony when its metricsInterval is positive.
+ */
+@Name("aco.Iteration")
+@Label("ACO Iteration")
+@Category("Ant Colony Optimization")
+@Description("Time, throughput, allocation and tour quality of one iteration of an ant colony")
+public class IterationEvent extends Event {
+    // Instance variables
+    @Label("Iteration")
+    public int iteration;             // Number of the iteration, starting from 1
+
+    @Label("Construction Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long constructionTime;     // Time the ants spent on constructing their tours, and on improving them if every tour is improved
+
+    @Label("Deposit Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long depositTime;          // Time spent on depositing the pheromone of all ants
+
+    @Label("Local Search Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long localSearchTime;      // Time spent on improving the best tour of the iteration and on its extra deposit
+
+    @Label("Evaporation Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long evaporationTime;      // Time spent on evaporation and on refreshing the choice-info matrix
+
+    @Label("Tours per Second")
+    public double toursPerSecond;     // Number of tours constructed per second of construction time
+
+    @Label("Allocated")
+    @DataAmount
+    public long allocated;            // Bytes allocated by the colony's thread and its workers during the iteration
+
+    @Label("Best Distance")
+    public double bestDistance;       // Length of the best tour found so far
+
+    @Label("Iteration Best Distance")
+    public double iterationBestDistance; // Length of the shortest tour of this iteration
+
+    @Label("Mean Distance")
+    public double meanDistance;       // Mean length of the tours of this iteration
+
+    @Label("Pheromone Entropy")
+    public double entropy;            // Mean normalized entropy of the pheromone rows, between 0 and 1
+}
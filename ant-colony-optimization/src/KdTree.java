@@ -0,0 +1,297 @@
+import java.util.ArrayList;
+
+/**
+ * Represents a two-dimensional k-d tree built over a fixed set of points.
+ * The tree is stored implicitly in an index array, where the median of every range splits it along the x or y axis.
+ * Provides a method to find the k nearest neighbours of any point of the set, and one to find the nearest point that an
+ * ant has not visited yet.
+ */
+public class KdTree {
+    // Instance variables
+    private final double[] xs;      // x-coordinates of the points
+    private final double[] ys;      // y-coordinates of the points
+    private final int[] order;      // Point indices arranged as an implicit balanced tree
+    private final int[] position;   // Position of each point in the order array
+    private final int[] rangeSizes; // Number of points in the range whose median is at each position
+
+    // Buffers used while answering a query
+    private int[] bestNodes;        // Nearest points found so far, sorted by distance
+    private double[] bestDistances; // Squared distances of the nearest points found so far
+    private int found;              // Number of entries in the buffers
+
+    // Public constructor
+    /**
+     * Constructs a k-d tree over the given points.
+     *
+     * @param points The points as {x, y} pairs. The index of a point in the list is used as its identifier.
+     */
+    public KdTree(ArrayList<double[]> points) {
+        int n = points.size();
+        xs = new double[n];
+        ys = new double[n];
+        order = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = points.get(i)[0];
+            ys[i] = points.get(i)[1];
+            order[i] = i;
+        }
+        build(0, n, 0);
+
+        position = new int[n];
+        rangeSizes = new int[n];
+        for (int i = 0; i < n; i++) {
+            position[order[i]] = i;
+        }
+        countRange(0, n);
+    }
+
+    // Public methods
+    /**
+     * Finds the k nearest neighbours of a point of the set, excluding the point itself.
+     * This method is not thread-safe, since it reuses the same query buffers on every call.
+     *
+     * @param point The index of the point whose neighbours are searched
+     * @param k The number of neighbours to find
+     * @return The indices of the nearest neighbours, sorted from the closest to the farthest
+     */
+    public int[] nearest(int point, int k) {
+        k = Math.min(k, order.length - 1);
+        bestNodes = new int[k];
+        bestDistances = new double[k];
+        found = 0;
+        if (k > 0) {
+            search(0, order.length, 0, point);
+        }
+        return bestNodes;
+    }
+
+    /**
+     * Resets the counts of unvisited points of every range of the tree, before an ant starts a new tour.
+     *
+     * @param counts An array of one entry per point, which counts the unvisited points of the range whose median is at
+     *               each position of the tree
+     */
+    public void resetCounts(int[] counts) {
+        System.arraycopy(rangeSizes, 0, counts, 0, counts.length);
+    }
+
+    /**
+     * Removes a visited point from the counts of every range that contains it, in O(log n) time.
+     *
+     * @param point The index of the point
+     * @param counts The counts of unvisited points, as filled by resetCounts
+     */
+    public void remove(int point, int[] counts) {
+        int target = position[point];
+        int lo = 0;
+        int hi = order.length;
+        while (true) {
+            int mid = (lo + hi) >>> 1;
+            counts[mid]--;
+            if (target == mid) {
+                return;
+            }
+            // Descend into the half that contains the point
+            if (target < mid) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the unvisited point that is nearest to a point of the set.
+     * Ranges whose points have all been visited are skipped, so the search stays fast until the end of a tour.
+     * Unlike nearest, this method only reads the tree, so several ants can call it at the same time.
+     *
+     * @param point The index of the query point
+     * @param visited The visited points as a bitset, in the layout of Ant.visited
+     * @param counts The counts of unvisited points, as kept up to date by remove
+     * @return The index of the nearest unvisited point, or -1 if every point has been visited
+     */
+    public int nearestUnvisited(int point, long[] visited, int[] counts) {
+        return searchUnvisited(0, order.length, 0, point, visited, counts, -1);
+    }
+
+    /**
+     * Counts the points of the given range and of all ranges below it.
+     *
+     * @param lo The first index of the range (inclusive)
+     * @param hi The last index of the range (exclusive)
+     */
+    private void countRange(int lo, int hi) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        rangeSizes[mid] = hi - lo;
+        countRange(lo, mid);
+        countRange(mid + 1, hi);
+    }
+
+    /**
+     * Arranges the given range of the index array so that its median splits it along the given axis,
+     * then does the same for both halves with the other axis.
+     *
+     * @param lo The first index of the range (inclusive)
+     * @param hi The last index of the range (exclusive)
+     * @param depth The depth of the range in the tree, which decides the splitting axis
+     */
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double[] axis = depth % 2 == 0 ? xs : ys;
+        select(lo, hi - 1, mid, axis);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Partially sorts the given range of the index array so that position k holds the point it would hold
+     * if the range was fully sorted along the given axis (quickselect).
+     *
+     * @param lo The first index of the range (inclusive)
+     * @param hi The last index of the range (inclusive)
+     * @param k The position to place
+     * @param axis The coordinates to compare
+     */
+    private void select(int lo, int hi, int k, double[] axis) {
+        while (lo < hi) {
+            double pivot = axis[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (axis[order[i]] < pivot) i++;
+                while (axis[order[j]] > pivot) j--;
+                if (i <= j) {
+                    int temp = order[i];
+                    order[i] = order[j];
+                    order[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            // Continue only with the side that contains position k
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Searches the given range of the tree for points closer to the query point than the current neighbours.
+     *
+     * @param lo The first index of the range (inclusive)
+     * @param hi The last index of the range (exclusive)
+     * @param depth The depth of the range in the tree
+     * @param point The index of the query point
+     */
+    private void search(int lo, int hi, int depth, int point) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int node = order[mid];
+        if (node != point) {
+            double dx = xs[node] - xs[point];
+            double dy = ys[node] - ys[point];
+            offer(node, dx * dx + dy * dy);
+        }
+
+        // Visit the side of the splitting line that contains the query point first
+        double difference = depth % 2 == 0 ? xs[point] - xs[node] : ys[point] - ys[node];
+        if (difference < 0) {
+            search(lo, mid, depth + 1, point);
+            if (found < bestNodes.length || difference * difference < bestDistances[found - 1]) {
+                search(mid + 1, hi, depth + 1, point);
+            }
+        } else {
+            search(mid + 1, hi, depth + 1, point);
+            if (found < bestNodes.length || difference * difference < bestDistances[found - 1]) {
+                search(lo, mid, depth + 1, point);
+            }
+        }
+    }
+
+    /**
+     * Searches the given range of the tree for an unvisited point closer to the query point than the best one so far.
+     *
+     * @param lo The first index of the range (inclusive)
+     * @param hi The last index of the range (exclusive)
+     * @param depth The depth of the range in the tree
+     * @param point The index of the query point
+     * @param visited The visited points as a bitset
+     * @param counts The counts of unvisited points of each range
+     * @param best The nearest unvisited point found so far, or -1
+     * @return The nearest unvisited point found in the range or before, or -1
+     */
+    private int searchUnvisited(int lo, int hi, int depth, int point, long[] visited, int[] counts, int best) {
+        int mid = (lo + hi) >>> 1;
+        if (lo >= hi || counts[mid] == 0) {
+            return best; // Empty range, or every point of it has been visited
+        }
+        int node = order[mid];
+        if ((visited[node >>> 6] & (1L << node)) == 0 && squaredDistance(node, point) < squaredDistance(best, point)) {
+            best = node;
+        }
+
+        // Visit the side of the splitting line that contains the query point first
+        double difference = depth % 2 == 0 ? xs[point] - xs[node] : ys[point] - ys[node];
+        if (difference < 0) {
+            best = searchUnvisited(lo, mid, depth + 1, point, visited, counts, best);
+            if (difference * difference < squaredDistance(best, point)) {
+                best = searchUnvisited(mid + 1, hi, depth + 1, point, visited, counts, best);
+            }
+        } else {
+            best = searchUnvisited(mid + 1, hi, depth + 1, point, visited, counts, best);
+            if (difference * difference < squaredDistance(best, point)) {
+                best = searchUnvisited(lo, mid, depth + 1, point, visited, counts, best);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Calculates the squared distance between two points of the set.
+     *
+     * @param node The index of the first point, or -1
+     * @param point The index of the second point
+     * @return The squared distance, or infinity if the first point is -1
+     */
+    private double squaredDistance(int node, int point) {
+        if (node < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double dx = xs[node] - xs[point];
+        double dy = ys[node] - ys[point];
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Inserts a point into the sorted neighbour buffers if it is closer than the farthest neighbour found so far.
+     *
+     * @param node The index of the point
+     * @param distance The squared distance from the query point
+     */
+    private void offer(int node, double distance) {
+        if (found == bestNodes.length && distance >= bestDistances[found - 1]) {
+            return;
+        }
+        int i = found < bestNodes.length ? found++ : found - 1;
+        // Shift farther neighbours back to keep the buffers sorted
+        while (i > 0 && bestDistances[i - 1] > distance) {
+            bestNodes[i] = bestNodes[i - 1];
+            bestDistances[i] = bestDistances[i - 1];
+            i--;
+        }
+        bestNodes[i] = node;
+        bestDistances[i] = distance;
+    }
+}
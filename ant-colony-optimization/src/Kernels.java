@@ -0,0 +1,155 @@
+/**
+ * Represents the inner loops of a colony that run over whole rows of its matrices: the selection weights of the
+ * unvisited nodes during tour construction, the refresh of the choice-info matrix, and the scaling of pheromone rows.
+ * This class runs them as plain scalar loops. If the vector kernels are requested and available, create returns a
+ * VectorKernels instead, which runs the same loops with the incubating Vector API of the JDK.
+ * <p>
+ * Both implementations can replace Math.pow with fastPow, whose relative error is bounded by fastPowError.
+ */
+public class Kernels {
+    // Constants
+    private static final long MANTISSA_BITS = 0x000FFFFFFFFFFFFFL; // Bits of the mantissa of a double
+    private static final long ONE_BITS = 0x3FF0000000000000L;      // Bits of 1.0
+    private static final double SQRT2 = Math.sqrt(2);
+    private static final double LN2 = Math.log(2);
+    private static final double LN2_HI = 6.93147180369123816490e-01; // ln(2) with its last bits cleared, so k * LN2_HI is exact
+    private static final double LN2_LO = 1.90821492927058770002e-10; // Rest of ln(2)
+    private static final double MAX_EXPONENT = 709;  // Largest natural exponent whose power is a normal double
+    private static final double MIN_EXPONENT = -708; // Smallest natural exponent whose power is a normal double
+    private static boolean vectorMissing;            // Whether the vector kernels were requested but are not available
+
+    // Public methods
+    /**
+     * Returns the kernels a colony uses.
+     *
+     * @param vector Whether the Vector API should be used if it is available.
+     * @return A VectorKernels if vector is true and the class and the jdk.incubator.vector module are available,
+     *         otherwise the scalar kernels.
+     */
+    public static Kernels create(boolean vector) {
+        if (vector && !vectorMissing) {
+            try {
+                return (Kernels) Class.forName("VectorKernels").getConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                vectorMissing = true; // Only report it once, even if many colonies are created
+                System.err.println("Vector kernels are not available, using scalar kernels (" + e + ")");
+            }
+        }
+        return new Kernels();
+    }
+
+    /**
+     * Stores the running sum of the weights of the unvisited nodes, where the weight of a node is its choice-info entry.
+     * Visited nodes add nothing to the sum.
+     *
+     * @param choiceInfo The choice-info row of the current node.
+     * @param visited The bitset of the visited nodes.
+     * @param cumulativeWeights An array of choiceInfo.length entries that receives the running sums.
+     * @return The sum of the weights of all unvisited nodes.
+     */
+    public double cumulativeWeights(double[] choiceInfo, long[] visited, double[] cumulativeWeights) {
+        double sum = 0;
+        for (int i = 0; i < choiceInfo.length; i++) {
+            if ((visited[i >>> 6] & (1L << i)) == 0) {
+                sum += choiceInfo[i];
+            }
+            cumulativeWeights[i] = sum;
+        }
+        return sum;
+    }
+
+    /**
+     * Refreshes a row of the choice-info matrix as pheromone^alpha * heuristic.
+     *
+     * @param pheromone The pheromone row.
+     * @param heuristic The heuristic row.
+     * @param choiceInfo The choice-info row that receives the result.
+     * @param alpha The influence of pheromone.
+     * @param fast Whether fastPow is used instead of Math.pow.
+     */
+    public void choiceInfo(double[] pheromone, double[] heuristic, double[] choiceInfo, double alpha, boolean fast) {
+        choiceInfo(pheromone, heuristic, choiceInfo, alpha, fast, 0, choiceInfo.length);
+    }
+
+    /**
+     * Multiplies every entry of a row by a factor.
+     *
+     * @param row The row.
+     * @param factor The factor.
+     */
+    public void scale(double[] row, double factor) {
+        for (int j = 0; j < row.length; j++) {
+            row[j] *= factor;
+        }
+    }
+
+    /**
+     * Refreshes a range of a row of the choice-info matrix as pheromone^alpha * heuristic.
+     *
+     * @param pheromone The pheromone row.
+     * @param heuristic The heuristic row.
+     * @param choiceInfo The choice-info row that receives the result.
+     * @param alpha The influence of pheromone.
+     * @param fast Whether fastPow is used instead of Math.pow.
+     * @param from The first column of the range.
+     * @param to The column after the range.
+     */
+    protected void choiceInfo(double[] pheromone, double[] heuristic, double[] choiceInfo, double alpha, boolean fast,
+                              int from, int to) {
+        for (int j = from; j < to; j++) {
+            choiceInfo[j] = (fast ? fastPow(pheromone[j], alpha) : Math.pow(pheromone[j], alpha)) * heuristic[j];
+        }
+    }
+
+    /**
+     * Calculates x^y for a positive x from a logarithm and an exponential function that only use multiplications,
+     * additions and one division. Arguments that are not positive normal numbers, and results that are not normal
+     * numbers, are left to Math.pow.
+     *
+     * @param x The base.
+     * @param y The exponent.
+     * @return x^y, with a relative error below fastPowError(y).
+     */
+    public static double fastPow(double x, double y) {
+        if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE)) {
+            return Math.pow(x, y); // Zero, subnormal, negative, infinite or NaN
+        }
+
+        // Split x into 2^e * m with m between sqrt(1/2) and sqrt(2)
+        long bits = Double.doubleToRawLongBits(x);
+        int e = (int) (bits >>> 52) - 1023;
+        double m = Double.longBitsToDouble((bits & MANTISSA_BITS) | ONE_BITS);
+        if (m > SQRT2) {
+            m *= 0.5;
+            e++;
+        }
+
+        // ln(m) = 2 * atanh(s) with |s| < 0.172, from the first six terms of its series
+        double s = (m - 1) / (m + 1);
+        double s2 = s * s;
+        double logM = 2 * s * (1 + s2 * (1.0 / 3 + s2 * (1.0 / 5 + s2 * (1.0 / 7 + s2 * (1.0 / 9 + s2 * (1.0 / 11))))));
+        double t = y * (e * LN2 + logM); // ln(x^y)
+        if (!(t >= MIN_EXPONENT && t <= MAX_EXPONENT)) {
+            return Math.pow(x, y); // The result is not a normal number
+        }
+
+        // e^t = 2^k * e^r with |r| <= ln(2) / 2, from the first nine terms of its series
+        double k = Math.rint(t * (1 / LN2));
+        double r = t - k * LN2_HI - k * LN2_LO;
+        double expR = 1 + r * (1 + r * (1.0 / 2 + r * (1.0 / 6 + r * (1.0 / 24
+                + r * (1.0 / 120 + r * (1.0 / 720 + r * (1.0 / 5040 + r * (1.0 / 40320))))))));
+        return expR * Double.longBitsToDouble((long) (k + 1023) << 52);
+    }
+
+    /**
+     * Returns a bound on the relative error of fastPow for a given exponent.
+     * The series of the logarithm is accurate to about 2e-11, which the exponent multiplies, and the series of the
+     * exponential function is accurate to about 2e-10.
+     *
+     * @param y The exponent.
+     * @return The bound on the relative error.
+     */
+    public static double fastPowError(double y) {
+        return 5e-10 + 5e-11 * Math.abs(y);
+    }
+}
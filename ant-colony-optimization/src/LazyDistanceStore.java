@@ -0,0 +1,45 @@
+import java.util.ArrayList;
+
+/**
+ * Represents a distance store that does not store any distance.
+ * Each distance is computed from the coordinates when it is needed, so only 16 * n bytes are used.
+ */
+public class LazyDistanceStore implements DistanceStore {
+    // Instance variables
+    private final double[] xs;  // x-coordinates of the nodes
+    private final double[] ys;  // y-coordinates of the nodes
+
+    // Public constructor
+    /**
+     * Constructs a new LazyDistanceStore over the given coordinates.
+     *
+     * @param coordinates The coordinates of the nodes as {x, y} pairs.
+     */
+    public LazyDistanceStore(ArrayList<double[]> coordinates) {
+        int n = coordinates.size();
+        xs = new double[n];
+        ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = coordinates.get(i)[0];
+            ys[i] = coordinates.get(i)[1];
+        }
+    }
+
+    // Public methods
+    @Override
+    public double get(int i, int j) {
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public int size() {
+        return xs.length;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 16L * xs.length;
+    }
+}
@@ -0,0 +1,392 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Represents a live view of the pheromone graph while a colony trains.
+ * A rendering thread draws a frame with StdDraw at a fixed frame rate. Each frame holds only the strongest edges,
+ * up to a fixed number and above a pheromone threshold, so drawing a frame takes the same time at any number of nodes.
+ * The solver thread keeps the strongest edges up to date while it refreshes the choice-info matrix. Evaporation scales
+ * every edge by the same factor, so only the edges that received pheromone can change their rank, and each of them costs
+ * O(log edgeCount). The whole matrix is only scanned when all of it changed, as the choice-info refresh does then too.
+ * The renderer asks for a snapshot once per frame, and the solver copies the strongest edges into it at the end of its
+ * next iteration. The solver never waits for the renderer, and it never calls StdDraw.
+ */
+public class LiveView {
+    // Constants
+    private static final int LABELLED_NODES = 100; // Largest number of nodes that are all drawn with their numbers
+
+    // Instance variables
+    private final ArrayList<double[]> coordinates;  // Coordinates of the nodes
+    private final long frameNanos;                  // Time between two frames
+    private final double threshold;                 // Pheromone below which edges are not drawn
+    private final AtomicReference<Frame> requested = new AtomicReference<>(); // Frame the solver should fill, or null
+    private final AtomicReference<Frame> filled = new AtomicReference<>();    // Frame the solver has filled, or null
+    private final TopEdges strongest;               // Strongest edges of the colony, kept up to date by the solver
+    private boolean tracking;                       // Whether the strongest edges include every deposit so far
+    private final Thread renderer;                  // Thread that draws the frames
+    private volatile boolean running = true;        // Whether the renderer keeps drawing
+
+    // Public constructor
+    /**
+     * Constructs a new LiveView and starts its rendering thread.
+     *
+     * @param coordinates The coordinates of the nodes, which are drawn on the unit square.
+     * @param framesPerSecond The number of frames drawn per second.
+     * @param edgeCount The largest number of edges drawn in a frame.
+     * @param threshold The pheromone below which edges are not drawn.
+     */
+    public LiveView(ArrayList<double[]> coordinates, int framesPerSecond, int edgeCount, double threshold) {
+        this.coordinates = coordinates;
+        this.frameNanos = 1_000_000_000L / framesPerSecond;
+        this.threshold = threshold;
+        this.strongest = new TopEdges(edgeCount);
+        Frame frame = new Frame(edgeCount);
+        this.renderer = new Thread(() -> render(frame), "live-view");
+        this.renderer.setDaemon(true); // Do not keep the JVM alive for the view
+        this.renderer.start();
+    }
+
+    // Public methods
+    /**
+     * Updates the strongest edges after the pheromone matrix changed. Called by the solver thread whenever the colony
+     * refreshes its choice-info matrix, with the same edges.
+     * The first call scans the whole matrix, since the deposits made before the view was attached are not known.
+     *
+     * @param colony The colony.
+     * @param rows The rows of the edges that received pheromone.
+     * @param columns The columns of the edges that received pheromone.
+     * @param count The number of edges that received pheromone.
+     * @param all Whether every entry of the pheromone matrix may have changed.
+     */
+    public void pheromoneChanged(Colony colony, int[] rows, int[] columns, int count, boolean all) {
+        if (all || !tracking) {
+            strongest.clear();
+            for (int i = 0; i < colony.n; i++) {
+                double[] row = colony.pheromoneMatrix[i];
+                for (int j = 0; j < row.length; j++) {
+                    int target = colony.edgeTarget(i, j);
+                    if (target <= i && (target == i || colony.edgeIndex(target, i) >= 0)) {
+                        continue; // A loop, or an edge that the row of the other node already holds
+                    }
+                    strongest.raise(i, target, row[j]);
+                }
+            }
+            tracking = true;
+            return;
+        }
+        for (int k = 0; k < count; k++) {
+            int i = rows[k];
+            int target = colony.edgeTarget(i, columns[k]);
+            strongest.raise(i, target, colony.pheromoneMatrix[i][columns[k]]);
+        }
+    }
+
+    /**
+     * Copies the strongest edges of the colony for the renderer if it has asked for a snapshot, and returns at once
+     * otherwise. Called by the solver thread after every iteration.
+     *
+     * @param colony The colony.
+     */
+    public void offer(Colony colony) {
+        Frame frame = requested.getAndSet(null);
+        if (frame == null) {
+            return;
+        }
+        if (!tracking) {
+            pheromoneChanged(colony, null, null, 0, true);
+        }
+        frame.fill(colony, strongest, threshold);
+        filled.set(frame);
+        LockSupport.unpark(renderer);
+    }
+
+    /**
+     * Stops the rendering thread and waits until it has finished its current frame, so that StdDraw can be used again.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(renderer);
+        try {
+            renderer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Asks the solver for a snapshot once per frame interval and draws it.
+     * The frame is reused, since the solver only fills it while the renderer waits for it.
+     *
+     * @param frame The frame.
+     */
+    private void render(Frame frame) {
+        while (running) {
+            long frameEnd = System.nanoTime() + frameNanos;
+            requested.set(frame);
+            while (running && filled.get() == null) {
+                LockSupport.park(this); // Woken by the solver once the frame is filled, or by close
+            }
+            if (filled.getAndSet(null) == null) {
+                break; // Closed before the solver filled the frame
+            }
+            draw(frame);
+
+            // Wait for the rest of the frame interval, so the solver is not asked for snapshots more often
+            long remaining;
+            while (running && (remaining = frameEnd - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+    }
+
+    /**
+     * Draws the edges of a frame, with a pen radius that grows with their pheromone, then the nodes and the progress.
+     *
+     * @param frame The frame.
+     */
+    private void draw(Frame frame) {
+        StdDraw.clear();
+        double strongest = 0;
+        for (int e = 0; e < frame.size; e++) {
+            strongest = Math.max(strongest, frame.pheromone[e]);
+        }
+
+        // Draw the edges relative to the strongest one, since the pheromone level changes over the run
+        StdDraw.setPenColor(StdDraw.BLACK);
+        for (int e = 0; e < frame.size; e++) {
+            double[] from = coordinates.get(frame.from[e]);
+            double[] to = coordinates.get(frame.to[e]);
+            StdDraw.setPenRadius(0.001 + 0.007 * frame.pheromone[e] / strongest);
+            StdDraw.line(from[0], from[1], to[0], to[1]);
+        }
+
+        if (coordinates.size() <= LABELLED_NODES) {
+            // Draw every node with its number, as in the final pheromone graph
+            for (int i = 0; i < coordinates.size(); i++) {
+                double[] node = coordinates.get(i);
+                StdDraw.setPenColor(StdDraw.LIGHT_GRAY);
+                StdDraw.filledCircle(node[0], node[1], 0.025);
+                StdDraw.setPenColor(StdDraw.BLACK);
+                StdDraw.text(node[0], node[1], String.valueOf(i + 1));
+            }
+        } else {
+            // Only draw the ends of the drawn edges, which keeps the frame time independent of the number of nodes
+            StdDraw.setPenColor(StdDraw.PRINCETON_ORANGE);
+            for (int e = 0; e < frame.size; e++) {
+                double[] from = coordinates.get(frame.from[e]);
+                double[] to = coordinates.get(frame.to[e]);
+                StdDraw.filledCircle(from[0], from[1], 0.002);
+                StdDraw.filledCircle(to[0], to[1], 0.002);
+            }
+        }
+
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.textLeft(0.01, 0.98, String.format("Iteration %d, best distance %.5f", frame.iteration, frame.bestDistance));
+        StdDraw.show();
+    }
+
+    /**
+     * Represents the strongest edges of a colony at one iteration, in reusable arrays.
+     */
+    private static class Frame {
+        // Instance variables
+        private final int[] from;         // First node of each edge
+        private final int[] to;           // Second node of each edge
+        private final double[] pheromone; // Pheromone on each edge
+        private int size;                 // Number of edges in the frame
+        private int iteration;            // Number of iterations the colony had run
+        private double bestDistance;      // Length of the best tour of the colony
+
+        // Constructor
+        /**
+         * Constructs a new Frame for up to the given number of edges.
+         *
+         * @param capacity The largest number of edges.
+         */
+        private Frame(int capacity) {
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.pheromone = new double[capacity];
+        }
+
+        /**
+         * Copies the strongest edges of a colony that are above the threshold, in O(edgeCount) time.
+         *
+         * @param colony The colony.
+         * @param strongest The strongest edges of the colony.
+         * @param threshold The pheromone below which edges are left out.
+         */
+        private void fill(Colony colony, TopEdges strongest, double threshold) {
+            size = 0;
+            iteration = colony.bestDistances.size();
+            bestDistance = colony.bestDistance;
+            for (int e = 0; e < strongest.size; e++) {
+                double value = strongest.pheromone[e] * colony.pheromoneScale; // The edges store unscaled pheromone
+                if (value >= threshold) {
+                    from[size] = (int) (strongest.keys[e] >>> 32);
+                    to[size] = (int) strongest.keys[e];
+                    pheromone[size] = value;
+                    size++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Represents the strongest edges of a colony as a min-heap on their pheromone, with a hash table from each edge to its
+     * position in the heap. The pheromone of an edge only grows between two full scans, so an edge that is raised either
+     * moves down the heap, or enters it in place of the weakest edge.
+     */
+    private static class TopEdges {
+        // Constants
+        private static final long EMPTY = -1; // Key of a free slot of the hash table
+
+        // Instance variables
+        private final long[] keys;        // Edge at each position of the heap, as first node << 32 | second node
+        private final double[] pheromone; // Unscaled pheromone of the edge at each position of the heap
+        private int size;                 // Number of edges in the heap
+        private final long[] slotKeys;    // Edge in each slot of the hash table, or EMPTY
+        private final int[] slotPositions; // Position in the heap of the edge in each slot of the hash table
+
+        // Constructor
+        /**
+         * Constructs a new TopEdges for up to the given number of edges.
+         *
+         * @param capacity The largest number of edges.
+         */
+        private TopEdges(int capacity) {
+            keys = new long[capacity];
+            pheromone = new double[capacity];
+            int slots = Integer.highestOneBit(Math.max(2 * capacity, 2) - 1) << 1; // Power of two, at most half full
+            slotKeys = new long[slots];
+            slotPositions = new int[slots];
+            Arrays.fill(slotKeys, EMPTY);
+        }
+
+        /**
+         * Removes every edge.
+         */
+        private void clear() {
+            size = 0;
+            Arrays.fill(slotKeys, EMPTY);
+        }
+
+        /**
+         * Records the new pheromone of an edge, which is at least its pheromone when it was last recorded.
+         *
+         * @param i One node of the edge.
+         * @param j The other node of the edge.
+         * @param value The unscaled pheromone on the edge.
+         */
+        private void raise(int i, int j, double value) {
+            if (keys.length == 0 || (size == keys.length && value <= pheromone[0])) {
+                return; // Not stronger than the weakest edge, so the edge is not in the heap either
+            }
+            long key = (long) Math.min(i, j) << 32 | Math.max(i, j);
+            int slot = find(key);
+            if (slotKeys[slot] == key) {
+                pheromone[slotPositions[slot]] = value;
+                siftDown(slotPositions[slot]);
+            } else if (size < keys.length) {
+                // Add the edge at the bottom of the heap and move it up
+                slotKeys[slot] = key;
+                place(size++, key, value);
+                siftUp(size - 1);
+            } else {
+                // Replace the weakest edge and move the new one down
+                remove(find(keys[0]));
+                slotKeys[find(key)] = key;
+                place(0, key, value);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Moves an edge up the heap until its parent is weaker.
+         *
+         * @param e The position of the edge.
+         */
+        private void siftUp(int e) {
+            long key = keys[e];
+            double value = pheromone[e];
+            while (e > 0 && pheromone[(e - 1) / 2] > value) {
+                place(e, keys[(e - 1) / 2], pheromone[(e - 1) / 2]);
+                e = (e - 1) / 2;
+            }
+            place(e, key, value);
+        }
+
+        /**
+         * Moves an edge down the heap until its children are stronger.
+         *
+         * @param e The position of the edge.
+         */
+        private void siftDown(int e) {
+            long key = keys[e];
+            double value = pheromone[e];
+            while (true) {
+                int child = 2 * e + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && pheromone[child + 1] < pheromone[child]) {
+                    child++;
+                }
+                if (pheromone[child] >= value) {
+                    break;
+                }
+                place(e, keys[child], pheromone[child]);
+                e = child;
+            }
+            place(e, key, value);
+        }
+
+        /**
+         * Stores an edge at a position of the heap, and points its slot of the hash table to that position.
+         *
+         * @param e The position.
+         * @param key The edge.
+         * @param value The unscaled pheromone on the edge.
+         */
+        private void place(int e, long key, double value) {
+            keys[e] = key;
+            pheromone[e] = value;
+            slotPositions[find(key)] = e;
+        }
+
+        /**
+         * Finds the slot of the hash table that holds an edge, or the free slot where it would be added.
+         *
+         * @param key The edge.
+         * @return The slot.
+         */
+        private int find(long key) {
+            int mask = slotKeys.length - 1;
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask; // Spread the node indices over the table
+            while (slotKeys[slot] != EMPTY && slotKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Frees a slot of the hash table, and moves later edges of its probe run back so that they can still be found.
+         *
+         * @param slot The slot.
+         */
+        private void remove(int slot) {
+            int mask = slotKeys.length - 1;
+            slotKeys[slot] = EMPTY;
+            for (int next = (slot + 1) & mask; slotKeys[next] != EMPTY; next = (next + 1) & mask) {
+                long key = slotKeys[next];
+                int position = slotPositions[next];
+                slotKeys[next] = EMPTY;
+                int target = find(key); // The first free slot of its probe run, which may now be an earlier one
+                slotKeys[target] = key;
+                slotPositions[target] = position;
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+import java.util.Arrays;
+
+/**
+ * Represents a local search that shortens a tour with 2-opt and Or-opt moves until no move improves it.
+ * Moves are only searched between a node and its nearest neighbours, and a node whose neighbourhood did not give
+ * an improving move is skipped until one of its tour edges changes (don't-look bits), so a pass takes close to linear time.
+ * Every move is carried out by reversing parts of the tour array, which keeps the tour a plain int array.
+ * One instance must not be shared between threads, since it keeps its buffers between calls.
+ */
+public class LocalSearch {
+    // Constants
+    private static final double EPSILON = 1e-12;  // Smallest gain that counts as an improvement
+    private static final int MAX_SEGMENT = 3;     // Longest segment moved by Or-opt
+
+    // Instance variables
+    private final int n;                    // Number of nodes
+    private final DistanceStore distances;  // Distance between each pair of nodes
+    private final int[][] neighbours;       // Nearest neighbours of each node, sorted by distance
+    private final boolean orOpt;            // Whether Or-opt moves are tried in addition to 2-opt moves
+    private final int[] position;           // Position of each node in the tour being improved
+    private final boolean[] queued;         // Nodes waiting in the queue, the others have their don't-look bit set
+    private final int[] queue;              // Circular queue of nodes to process
+    private int head;                       // Index of the next node to process in the queue
+    private int queueSize;                  // Number of nodes in the queue
+    private int[] tour;                     // Tour being improved
+
+    // Public constructor
+    /**
+     * Constructs a new LocalSearch over the given distances.
+     *
+     * @param distances The distances between the nodes.
+     * @param neighbours The nearest neighbours of each node, sorted by distance.
+     * @param orOpt Whether Or-opt moves are tried in addition to 2-opt moves.
+     */
+    public LocalSearch(DistanceStore distances, int[][] neighbours, boolean orOpt) {
+        this.n = distances.size();
+        this.distances = distances;
+        this.neighbours = neighbours;
+        this.orOpt = orOpt;
+        this.position = new int[n];
+        this.queued = new boolean[n];
+        this.queue = new int[n];
+    }
+
+    // Public method
+    /**
+     * Improves a closed tour in place until no 2-opt or Or-opt move makes it shorter.
+     *
+     * @param tour The tour as n + 1 node indices, where the last entry repeats the first one.
+     * @return The length of the improved tour.
+     */
+    public double improve(int[] tour) {
+        this.tour = tour;
+        for (int i = 0; i < n; i++) {
+            position[tour[i]] = i;
+        }
+
+        // Start with every node in the queue
+        Arrays.fill(queued, true);
+        for (int i = 0; i < n; i++) {
+            queue[i] = tour[i];
+        }
+        head = 0;
+        queueSize = n;
+
+        if (n >= 5) {
+            while (queueSize > 0) {
+                int node = queue[head];
+                head = (head + 1) % n;
+                queueSize--;
+                queued[node] = false;
+
+                // If no move improves the tour, the node stays out of the queue until one of its edges changes
+                if (!improveTwoOpt(node) && orOpt) {
+                    improveOrOpt(node);
+                }
+            }
+        }
+
+        tour[n] = tour[0]; // Close the tour again
+        double length = 0;
+        for (int i = 0; i < n; i++) {
+            length += distances.get(tour[i], tour[i + 1]);
+        }
+        this.tour = null;
+        return length;
+    }
+
+    /**
+     * Tries the 2-opt moves that connect the given node to one of its nearest neighbours, and applies the first improving one.
+     *
+     * @param a The node.
+     * @return True if the tour was improved, false otherwise.
+     */
+    private boolean improveTwoOpt(int a) {
+        // Replace the edge to the successor or to the predecessor of the node
+        for (int direction = 0; direction < 2; direction++) {
+            int b = direction == 0 ? next(a) : previous(a);
+            double removed = distances.get(a, b);
+            for (int c : neighbours[a]) {
+                double added = distances.get(a, c);
+                if (added >= removed) {
+                    break; // Farther neighbours cannot give a shorter tour either
+                }
+                int d = direction == 0 ? next(c) : previous(c);
+                if (c == b || d == a) {
+                    continue;
+                }
+                double gain = removed + distances.get(c, d) - added - distances.get(b, d);
+                if (gain > EPSILON) {
+                    if (direction == 0) {
+                        move(a, b, c, d);
+                    } else {
+                        move(b, a, d, c);
+                    }
+                    wake(a, b, c, d);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tries to move a segment of one to three nodes starting at the given node between two adjacent nodes elsewhere in
+     * the tour, in either orientation, next to a nearest neighbour of one of the segment's ends. Applies the best improving move.
+     *
+     * @param first The first node of the segment.
+     * @return True if the tour was improved, false otherwise.
+     */
+    private boolean improveOrOpt(int first) {
+        int p = previous(first);
+        int last = first;
+        for (int length = 1; length <= MAX_SEGMENT && length < n - 3; length++) {
+            if (length > 1) {
+                last = next(last);
+            }
+            int nx = next(last);
+            // Gain of taking the segment out and closing the gap
+            double removed = distances.get(p, first) + distances.get(last, nx) - distances.get(p, nx);
+            if (removed <= EPSILON) {
+                continue;
+            }
+
+            double bestGain = EPSILON;
+            int bestX = -1;
+            int bestY = -1;
+            boolean bestReversed = false;
+            for (int end = 0; end < 2; end++) {
+                int node = end == 0 ? first : last;
+                for (int c : neighbours[node]) {
+                    if (distances.get(node, c) >= removed) {
+                        break; // Farther neighbours cannot give a shorter tour either
+                    }
+                    if (inSegment(c, first, length)) {
+                        continue;
+                    }
+                    // Try the edges on both sides of the neighbour
+                    for (int side = 0; side < 2; side++) {
+                        int x = side == 0 ? c : previous(c);
+                        int y = next(x);
+                        if (y == p || inSegment(x, first, length) || inSegment(y, first, length)) {
+                            continue;
+                        }
+                        double base = removed + distances.get(x, y);
+                        double sameGain = base - distances.get(x, first) - distances.get(last, y);
+                        double reversedGain = base - distances.get(x, last) - distances.get(first, y);
+                        if (sameGain > bestGain) {
+                            bestGain = sameGain;
+                            bestX = x;
+                            bestY = y;
+                            bestReversed = false;
+                        }
+                        if (reversedGain > bestGain) {
+                            bestGain = reversedGain;
+                            bestX = x;
+                            bestY = y;
+                            bestReversed = true;
+                        }
+                    }
+                }
+            }
+
+            if (bestX != -1) {
+                moveSegment(p, first, last, nx, bestX, bestY, bestReversed);
+                wake(p, first, last, nx);
+                wake(bestX, bestY, first, last);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the segment between p and nx so that it lies between x and y, as a sequence of 2-opt moves.
+     *
+     * @param p The node before the segment.
+     * @param first The first node of the segment.
+     * @param last The last node of the segment.
+     * @param nx The node after the segment.
+     * @param x The node that will come before the segment.
+     * @param y The node that will come after the segment, which follows x in the tour.
+     * @param reversed Whether the segment is inserted in reverse order.
+     */
+    private void moveSegment(int p, int first, int last, int nx, int x, int y, boolean reversed) {
+        // p first..last nx ... x y  becomes  p x ... nx last..first y
+        move(p, first, x, y);
+        if (x != nx) {
+            // p x ... nx last..first y  becomes  p nx ... x last..first y
+            move(p, x, nx, last);
+        }
+        if (!reversed) {
+            // x last..first y  becomes  x first..last y
+            move(x, last, first, y);
+        }
+    }
+
+    /**
+     * Applies the 2-opt move that removes the edges (a, b) and (c, d) and adds the edges (a, c) and (b, d).
+     * b must follow a and d must follow c in the same direction of the tour.
+     *
+     * @param a The first node of the first removed edge.
+     * @param b The second node of the first removed edge.
+     * @param c The first node of the second removed edge.
+     * @param d The second node of the second removed edge.
+     */
+    private void move(int a, int b, int c, int d) {
+        if (next(a) == b) {
+            reverse(b, c);
+        } else {
+            reverse(a, d);
+        }
+    }
+
+    /**
+     * Reverses the part of the tour that runs forward from one node to another.
+     * If that part is longer than half the tour, the rest of the tour is reversed instead, which gives the same cycle.
+     *
+     * @param from The first node of the part.
+     * @param to The last node of the part.
+     */
+    private void reverse(int from, int to) {
+        int i = position[from];
+        int j = position[to];
+        int length = (j - i + n) % n + 1;
+        if (2 * length > n) {
+            // Reverse the complement instead
+            int start = (j + 1) % n;
+            j = (i - 1 + n) % n;
+            i = start;
+            length = n - length;
+        }
+        for (int k = 0; k < length / 2; k++) {
+            int left = tour[i];
+            int right = tour[j];
+            tour[i] = right;
+            position[right] = i;
+            tour[j] = left;
+            position[left] = j;
+            i = (i + 1) % n;
+            j = (j - 1 + n) % n;
+        }
+    }
+
+    /**
+     * Checks whether a node belongs to the segment of the given length that starts at the given node.
+     *
+     * @param node The node to check.
+     * @param first The first node of the segment.
+     * @param length The number of nodes in the segment.
+     * @return True if the node belongs to the segment, false otherwise.
+     */
+    private boolean inSegment(int node, int first, int length) {
+        return (position[node] - position[first] + n) % n < length;
+    }
+
+    /**
+     * Clears the don't-look bits of the given nodes by putting them back into the queue.
+     *
+     * @param a The first node whose edges changed.
+     * @param b The second node whose edges changed.
+     * @param c The third node whose edges changed.
+     * @param d The fourth node whose edges changed.
+     */
+    private void wake(int a, int b, int c, int d) {
+        enqueue(a);
+        enqueue(b);
+        enqueue(c);
+        enqueue(d);
+    }
+
+    /**
+     * Puts a node at the end of the queue if it is not already waiting in it.
+     *
+     * @param node The node.
+     */
+    private void enqueue(int node) {
+        if (!queued[node]) {
+            queued[node] = true;
+            queue[(head + queueSize) % n] = node;
+            queueSize++;
+        }
+    }
+
+    /**
+     * Returns the node that follows the given node in the tour.
+     *
+     * @param node The node.
+     * @return The successor of the node.
+     */
+    private int next(int node) {
+        int i = position[node] + 1;
+        return tour[i == n ? 0 : i];
+    }
+
+    /**
+     * Returns the node that precedes the given node in the tour.
+     *
+     * @param node The node.
+     * @return The predecessor of the node.
+     */
+    private int previous(int node) {
+        int i = position[node] - 1;
+        return tour[i < 0 ? n - 1 : i];
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Represents a distance store backed by a full n x n matrix of doubles.
+ * Provides the fastest lookups, but needs 8 * n^2 bytes.
+ */
+public class MatrixDistanceStore implements DistanceStore {
+    // Instance variables
+    public final double[][] matrix;  // Distance between each pair of nodes
+
+    // Public constructor
+    /**
+     * Constructs a new MatrixDistanceStore around an already filled matrix.
+     *
+     * @param matrix The distance matrix, which is used without copying.
+     */
+    public MatrixDistanceStore(double[][] matrix) {
+        this.matrix = matrix;
+    }
+
+    // Public methods
+    @Override
+    public double get(int i, int j) {
+        return matrix[i][j];
+    }
+
+    @Override
+    public int size() {
+        return matrix.length;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 8L * matrix.length * matrix.length;
+    }
+}
@@ -0,0 +1,81 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+
+/**
+ * Represents a distance store that keeps the upper triangle of the distance matrix in direct memory, outside the heap.
+ * The triangle is stored in single precision and split over several buffers of at most 1 GB each,
+ * so it is neither limited by the maximum array size nor scanned by the garbage collector.
+ * The JVM flag -XX:MaxDirectMemorySize must allow 2 * n * (n - 1) bytes.
+ */
+public class OffHeapDistanceStore implements DistanceStore {
+    // Constants
+    private static final int CHUNK_BITS = 28;                     // Each buffer holds 2^28 floats (1 GB)
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    // Instance variables
+    private final int n;                  // Number of nodes
+    private final FloatBuffer[] chunks;   // Buffers holding the packed upper triangle, row after row
+
+    // Public constructor
+    /**
+     * Constructs a new OffHeapDistanceStore from the Euclidean distances between the given coordinates.
+     *
+     * @param coordinates The coordinates of the nodes as {x, y} pairs.
+     */
+    public OffHeapDistanceStore(ArrayList<double[]> coordinates) {
+        n = coordinates.size();
+        long count = (long) n * (n - 1) / 2;
+
+        // Allocate the buffers needed to hold the whole triangle
+        chunks = new FloatBuffer[(int) ((count + CHUNK_MASK) >>> CHUNK_BITS)];
+        for (int c = 0; c < chunks.length; c++) {
+            long floats = Math.min(CHUNK_MASK + 1, count - ((long) c << CHUNK_BITS));
+            chunks[c] = ByteBuffer.allocateDirect((int) (floats * 4)).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+
+        for (int i = 0; i < n; i++) {
+            double[] coordinates1 = coordinates.get(i);
+            for (int j = i + 1; j < n; j++) {
+                double[] coordinates2 = coordinates.get(j);
+                double dx = coordinates1[0] - coordinates2[0];
+                double dy = coordinates1[1] - coordinates2[1];
+                long index = index(i, j);
+                chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & CHUNK_MASK), (float) Math.sqrt(dx * dx + dy * dy));
+            }
+        }
+    }
+
+    // Public methods
+    @Override
+    public double get(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        long index = i < j ? index(i, j) : index(j, i);
+        return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 2L * n * (n - 1);
+    }
+
+    /**
+     * Calculates the position of a pair in the packed upper triangle.
+     *
+     * @param i The smaller node index.
+     * @param j The larger node index.
+     * @return The position of the pair.
+     */
+    private long index(int i, int j) {
+        // Rows 0 .. i - 1 hold (n - 1) + (n - 2) + ... + (n - i) entries
+        return (long) i * (2L * n - i - 1) / 2 + (j - i - 1);
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.ArrayList;
+
+/**
+ * Represents a distance store that only keeps the upper triangle of the distance matrix, in single precision.
+ * Since the graph is symmetric and its diagonal is zero, this needs 2 * n * (n - 1) bytes,
+ * about a quarter of a full matrix of doubles.
+ */
+public class PackedDistanceStore implements DistanceStore {
+    // Instance variables
+    private final float[][] rows;  // Row i holds the distances from node i to the nodes i + 1 .. n - 1
+
+    // Public constructor
+    /**
+     * Constructs a new PackedDistanceStore from the Euclidean distances between the given coordinates.
+     *
+     * @param coordinates The coordinates of the nodes as {x, y} pairs.
+     */
+    public PackedDistanceStore(ArrayList<double[]> coordinates) {
+        int n = coordinates.size();
+        rows = new float[n][];
+        for (int i = 0; i < n; i++) {
+            double[] coordinates1 = coordinates.get(i);
+            rows[i] = new float[n - 1 - i];
+            for (int j = i + 1; j < n; j++) {
+                double[] coordinates2 = coordinates.get(j);
+                double dx = coordinates1[0] - coordinates2[0];
+                double dy = coordinates1[1] - coordinates2[1];
+                rows[i][j - i - 1] = (float) Math.sqrt(dx * dx + dy * dy);
+            }
+        }
+    }
+
+    // Public methods
+    @Override
+    public double get(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        // Look the pair up in the row of the smaller index
+        return i < j ? rows[i][j - i - 1] : rows[j][i - j - 1];
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long n = rows.length;
+        return 2L * n * (n - 1);
+    }
+}
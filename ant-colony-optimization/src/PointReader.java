@@ -0,0 +1,355 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Represents a reader of point files, which streams the file through a fixed buffer and parses the coordinates
+ * straight from the bytes into primitive arrays, without creating a String for every line or number.
+ * Two formats are read:
+ * - plain files with one "x,y" pair per line, where the separator can also be spaces or tabs, and
+ * - TSPLIB files with a NODE_COORD_SECTION of "id x y" lines, if their EDGE_WEIGHT_TYPE is EUC_2D.
+ * A file is read as TSPLIB if its first character is a letter, since TSPLIB files start with their header.
+ * TSPLIB distances are rounded to integers, while the distance stores of this project are not, so tour lengths
+ * of TSPLIB instances are slightly below the lengths published for them.
+ */
+public class PointReader {
+    // Constants
+    private static final int BUFFER_SIZE = 1 << 16; // Number of bytes read from the file at once
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    }; // Powers of ten that are exact doubles
+
+    // Instance variables
+    private final String file;               // Path of the file
+    private final FileChannel channel;       // Channel the file is read from
+    private final ByteBuffer buffer;         // Part of the file that is currently parsed
+    private byte[] token = new byte[64];     // Bytes of the current number, for the rare numbers parsed by Double.parseDouble
+    private double[] xs = new double[1024];  // x-coordinates of the points read so far
+    private double[] ys = new double[1024];  // y-coordinates of the points read so far
+    private int size;                        // Number of points read so far
+
+    // Public constructor
+    /**
+     * Constructs a new PointReader and opens the given file.
+     *
+     * @param file The path of the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public PointReader(String file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.buffer.flip(); // Start with an empty buffer
+    }
+
+    // Public methods
+    /**
+     * Reads all points of the file and closes it.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws NumberFormatException if a coordinate is not a number.
+     * @throws IllegalArgumentException if a TSPLIB file does not use EUC_2D distances.
+     */
+    public void read() throws IOException {
+        try {
+            skipWhitespace();
+            int first = peek();
+            if ((first >= 'A' && first <= 'Z') || (first >= 'a' && first <= 'z')) {
+                readTsplibHeader();
+                readPoints(true);
+            } else {
+                readPoints(false);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the number of points that were read.
+     *
+     * @return The number of points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the x-coordinates of the points that were read.
+     *
+     * @return An array of size() entries.
+     */
+    public double[] xs() {
+        return Arrays.copyOf(xs, size);
+    }
+
+    /**
+     * Returns the y-coordinates of the points that were read.
+     *
+     * @return An array of size() entries.
+     */
+    public double[] ys() {
+        return Arrays.copyOf(ys, size);
+    }
+
+    /**
+     * Returns the points that were read as {x, y} pairs, in the form the rest of the project uses.
+     *
+     * @return The points, in the order of the file.
+     */
+    public ArrayList<double[]> toList() {
+        ArrayList<double[]> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(new double[]{xs[i], ys[i]});
+        }
+        return points;
+    }
+
+    /**
+     * Reads the header of a TSPLIB file up to its NODE_COORD_SECTION line.
+     * The header is only a few lines long, so its lines are read as Strings.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file does not use EUC_2D distances or has no NODE_COORD_SECTION.
+     */
+    private void readTsplibHeader() throws IOException {
+        while (true) {
+            String line = readLine();
+            if (line == null) {
+                throw new IllegalArgumentException(file + " has no NODE_COORD_SECTION");
+            }
+            line = line.trim();
+            if (line.startsWith("NODE_COORD_SECTION")) {
+                return;
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (key.equals("EDGE_WEIGHT_TYPE") && !value.equals("EUC_2D")) {
+                throw new IllegalArgumentException(file + " uses " + value + " distances, only EUC_2D is supported");
+            } else if (key.equals("DIMENSION")) {
+                int dimension = Integer.parseInt(value);
+                xs = new double[dimension];
+                ys = new double[dimension];
+            }
+        }
+    }
+
+    /**
+     * Reads one point per line until the end of the file, or until a TSPLIB EOF line.
+     *
+     * @param numbered Whether every line starts with the number of the point, as in TSPLIB files
+     * @throws IOException if the file cannot be read.
+     */
+    private void readPoints(boolean numbered) throws IOException {
+        while (true) {
+            skipWhitespace();
+            int first = peek();
+            if (first < 0 || first == 'E') {
+                return; // End of the file, or the EOF line of a TSPLIB file
+            }
+            if (numbered) {
+                readNumber(); // Skip the number of the point
+            }
+            double x = readNumber();
+            double y = readNumber();
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, Math.max(16, 2 * size));
+                ys = Arrays.copyOf(ys, xs.length);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+            skipLine(); // Ignore anything after the coordinates
+        }
+    }
+
+    /**
+     * Parses the next number on the current line, skipping the separators before it.
+     * Numbers with at most 15 significant digits and a small exponent are converted exactly with a single
+     * multiplication or division. Other numbers are passed to Double.parseDouble.
+     *
+     * @return The number.
+     * @throws IOException if the file cannot be read.
+     * @throws NumberFormatException if there is no number.
+     */
+    private double readNumber() throws IOException {
+        // Skip the separators on the current line
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == ',') {
+            next();
+            c = peek();
+        }
+
+        int length = 0;
+        boolean negative = false;
+        long mantissa = 0; // Significant digits of the number
+        int digits = 0; // Number of significant digits
+        int exponent = 0; // Power of ten the mantissa is multiplied with
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            length = append(length, next());
+            c = peek();
+        }
+        while ((c >= '0' && c <= '9') || (c == '.' && !seenPoint)) {
+            length = append(length, next());
+            if (c == '.') {
+                seenPoint = true;
+            } else {
+                seenDigit = true;
+                if (digits > 0 || c != '0') {
+                    if (digits < 18) {
+                        mantissa = 10 * mantissa + (c - '0');
+                        if (seenPoint) {
+                            exponent--;
+                        }
+                    } else if (!seenPoint) {
+                        exponent++; // Digits beyond the precision of the mantissa only scale it
+                    }
+                    digits++;
+                } else if (seenPoint) {
+                    exponent--; // Leading zero after the decimal point
+                }
+            }
+            c = peek();
+        }
+        if (!seenDigit) {
+            throw new NumberFormatException("Expected a number in " + file + " after point " + size);
+        }
+        boolean exact = digits <= 15;
+        if (c == 'e' || c == 'E') {
+            length = append(length, next());
+            c = peek();
+            if (c == '-' || c == '+') {
+                length = append(length, next());
+                c = peek();
+            }
+            while (c >= '0' && c <= '9') {
+                length = append(length, next());
+                c = peek();
+            }
+            exact = false; // Leave explicit exponents to Double.parseDouble
+        }
+
+        if (exact && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(token, 0, length, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Appends a byte to the bytes of the current number.
+     *
+     * @param length The number of bytes of the current number
+     * @param b The byte to append
+     * @return The new number of bytes
+     */
+    private int append(int length, int b) {
+        if (length == token.length) {
+            token = Arrays.copyOf(token, 2 * length);
+        }
+        token[length] = (byte) b;
+        return length + 1;
+    }
+
+    /**
+     * Reads the rest of the current line as a String.
+     *
+     * @return The line without its line break, or null at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private String readLine() throws IOException {
+        if (peek() < 0) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder();
+        int c = next();
+        while (c >= 0 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+            c = next();
+        }
+        return line.toString();
+    }
+
+    /**
+     * Skips the rest of the current line, including its line break.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    private void skipLine() throws IOException {
+        int c = next();
+        while (c >= 0 && c != '\n') {
+            c = next();
+        }
+    }
+
+    /**
+     * Skips spaces, tabs and line breaks.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    private void skipWhitespace() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+            next();
+            c = peek();
+        }
+    }
+
+    /**
+     * Returns the next byte of the file without consuming it.
+     *
+     * @return The byte, or -1 at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    /**
+     * Consumes the next byte of the file.
+     *
+     * @return The byte, or -1 at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private int next() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Reads the next part of the file into the empty buffer.
+     *
+     * @return True if at least one byte was read, false at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int read = 0;
+        while (read == 0) {
+            read = channel.read(buffer);
+        }
+        buffer.flip();
+        return read > 0;
+    }
+}
@@ -0,0 +1,339 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Represents an on-disk cache of solved instances, so that solving the same points again takes milliseconds.
+ * An entry is stored under the SHA-256 hash of the normalised points and a description of the solver and its
+ * hyperparameters. The points are normalised by sorting them, so a file with the same points in another order hits
+ * the same entry, and the tour is stored in the sorted numbering and translated back on a hit.
+ * Next to each entry, the cache keeps the best tour found for the same points by any solver, which can seed a new run.
+ * The total size of the entries is bounded: the least recently used entries are deleted first, where a hit counts as
+ * a use. Entries are written to a temporary file and moved into place, so several processes can share the directory.
+ */
+public class ResultCache {
+    // Constants
+    private static final int MAGIC = 0x41434F52; // First int of every entry ("ACOR")
+    private static final String SUFFIX = ".result";
+    private static final String BEST = "best";   // Solver of the entry that holds the best tour of any solver
+    private static final Comparator<double[]> POINT_ORDER = new Comparator<double[]>() {
+        // Not a lambda, since bootstrapping the first lambda would take longer than answering from the cache
+        @Override
+        public int compare(double[] a, double[] b) {
+            int byX = Double.compare(a[0], b[0]);
+            return byX != 0 ? byX : Double.compare(a[1], b[1]);
+        }
+    };
+
+    // Instance variables
+    private final Path directory; // Directory of the entries
+    private final long maxBytes;  // Largest total size of the entries
+
+    // Public constructor
+    /**
+     * Constructs a new ResultCache in the given directory, which is created when the first entry is stored.
+     *
+     * @param directory The directory of the entries.
+     * @param maxBytes The largest total size of the entries in bytes.
+     */
+    public ResultCache(String directory, long maxBytes) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    // Public methods
+    /**
+     * Returns the stored result of a solver for the given points.
+     *
+     * @param coordinates The coordinates of the nodes.
+     * @param solver The description of the solver and the hyperparameters that affect its result.
+     * @return The result in the numbering of the given points, or null if none is stored.
+     */
+    public Result get(ArrayList<double[]> coordinates, String solver) {
+        int[] order = sortedOrder(coordinates);
+        return read(file(coordinates, order, solver), order);
+    }
+
+    /**
+     * Returns the shortest tour stored for the given points by any solver with any hyperparameters.
+     *
+     * @param coordinates The coordinates of the nodes.
+     * @return The result in the numbering of the given points, with an empty trace, or null if none is stored.
+     */
+    public Result best(ArrayList<double[]> coordinates) {
+        int[] order = sortedOrder(coordinates);
+        return read(file(coordinates, order, BEST), order);
+    }
+
+    /**
+     * Stores the result of a solver for the given points, also as the best tour if it is shorter than the stored one,
+     * and deletes the least recently used entries until the cache fits in its size again.
+     * A result that cannot be written is reported and otherwise ignored, since the cache only saves time.
+     *
+     * @param coordinates The coordinates of the nodes.
+     * @param solver The description of the solver and the hyperparameters that affect its result.
+     * @param result The result, in the numbering of the given points.
+     */
+    public void put(ArrayList<double[]> coordinates, String solver, Result result) {
+        int[] order = sortedOrder(coordinates);
+        try {
+            Files.createDirectories(directory);
+            write(file(coordinates, order, solver), order, result);
+            Path bestFile = file(coordinates, order, BEST);
+            Result best = read(bestFile, order);
+            if (best == null || result.distance < best.distance) {
+                write(bestFile, order, new Result(result.path, result.distance, new ArrayList<>()));
+            }
+            evict();
+        } catch (IOException e) {
+            System.err.println("Writing to the result cache " + directory + " failed: " + e);
+        }
+    }
+
+    /**
+     * Finds the order that sorts the points by x and then by y, which numbers the points independently of their order.
+     *
+     * @param coordinates The coordinates of the nodes.
+     * @return The index of the point at each position of the sorted order.
+     */
+    private static int[] sortedOrder(ArrayList<double[]> coordinates) {
+        // Sort the points with their indices, as {x, y, index} triples
+        double[][] points = new double[coordinates.size()][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[]{normalise(coordinates.get(i)[0]), normalise(coordinates.get(i)[1]), i};
+        }
+        Arrays.sort(points, POINT_ORDER);
+
+        int[] sorted = new int[points.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = (int) points[i][2];
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns a coordinate with -0.0 replaced by 0.0, so that both hash and compare as the same point.
+     *
+     * @param coordinate The coordinate.
+     * @return The normalised coordinate.
+     */
+    private static double normalise(double coordinate) {
+        return coordinate + 0.0;
+    }
+
+    /**
+     * Returns the file of an entry, named after the hash of the sorted points and the solver.
+     *
+     * @param coordinates The coordinates of the nodes.
+     * @param order The sorted order of the points.
+     * @param solver The description of the solver.
+     * @return The path of the entry.
+     */
+    private Path file(ArrayList<double[]> coordinates, int[] order, String solver) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer point = ByteBuffer.allocate(16);
+            for (int i : order) {
+                point.clear();
+                point.putDouble(normalise(coordinates.get(i)[0])).putDouble(normalise(coordinates.get(i)[1]));
+                digest.update(point.array());
+            }
+            digest.update((byte) 0); // Separate the points from the solver
+            digest.update(solver.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest.digest()) {
+                name.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+            }
+            return directory.resolve(name.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JVM supports SHA-256
+        }
+    }
+
+    /**
+     * Reads an entry and marks it as used.
+     *
+     * @param file The path of the entry.
+     * @param order The sorted order of the points.
+     * @return The result in the numbering of the points, or null if the entry does not exist or is not readable.
+     */
+    private Result read(Path file, int[] order) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != order.length) {
+                return null;
+            }
+            int[] tour = new int[in.readInt()];
+            for (int k = 0; k < tour.length; k++) {
+                tour[k] = in.readInt();
+            }
+            double distance = in.readDouble();
+            ArrayList<Double> trace = new ArrayList<>();
+            int traceLength = in.readInt();
+            for (int k = 0; k < traceLength; k++) {
+                trace.add(in.readDouble());
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis())); // Used now, for the LRU order
+            return new Result(originalPath(tour, order), distance, trace);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring the unreadable cache entry " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes an entry to a temporary file and moves it over the entry.
+     *
+     * @param file The path of the entry.
+     * @param order The sorted order of the points.
+     * @param result The result in the numbering of the points.
+     * @throws IOException if the entry cannot be written.
+     */
+    private void write(Path file, int[] order, Result result) throws IOException {
+        int[] position = new int[order.length]; // Position of each point in the sorted order
+        for (int k = 0; k < order.length; k++) {
+            position[order[k]] = k;
+        }
+
+        Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(order.length);
+                out.writeInt(result.path.size());
+                for (int node : result.path) {
+                    out.writeInt(position[node - 1]);
+                }
+                out.writeDouble(result.distance);
+                out.writeInt(result.trace.size());
+                for (double distance : result.trace) {
+                    out.writeDouble(distance);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Translates a stored tour back to the numbering of the points, starting and ending at node 1.
+     *
+     * @param tour The stored tour, as positions in the sorted order that end with the starting position.
+     * @param order The sorted order of the points.
+     * @return The tour numbered from 1.
+     */
+    private static ArrayList<Integer> originalPath(int[] tour, int[] order) {
+        int nodes = tour.length - 1; // The tour repeats its starting node
+        int start = 0;
+        for (int k = 0; k < nodes; k++) {
+            if (order[tour[k]] == 0) {
+                start = k;
+            }
+        }
+
+        ArrayList<Integer> path = new ArrayList<>(tour.length);
+        for (int k = 0; k <= nodes; k++) {
+            path.add(order[tour[(start + k) % nodes]] + 1);
+        }
+        return path;
+    }
+
+    /**
+     * Deletes the least recently used entries until the total size of the entries is at most maxBytes.
+     *
+     * @throws IOException if the directory cannot be listed.
+     */
+    private void evict() throws IOException {
+        ArrayList<Path> entries = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path entry : files) {
+                entries.add(entry);
+                total += size(entry);
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(ResultCache::lastUsed)); // Only on a miss, when the solver took far longer
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            total -= size(entry);
+            Files.deleteIfExists(entry);
+        }
+    }
+
+    /**
+     * Returns the size of an entry, or 0 if another process has deleted it.
+     *
+     * @param entry The path of the entry.
+     * @return The size in bytes.
+     */
+    private static long size(Path entry) {
+        try {
+            return Files.size(entry);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the time at which an entry was last written or read, or 0 if another process has deleted it.
+     *
+     * @param entry The path of the entry.
+     * @return The time in milliseconds.
+     */
+    private static long lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Represents the result of a solver: the tour, its length and the best distance after each iteration.
+     */
+    public static class Result {
+        // Instance variables
+        public final ArrayList<Integer> path;  // Tour numbered from 1, starting and ending with node 1
+        public final double distance;          // Length of the tour
+        public final ArrayList<Double> trace;  // Best distance after each iteration (empty for the exact solvers)
+
+        // Public constructor
+        /**
+         * Constructs a new Result.
+         *
+         * @param path The tour numbered from 1, starting and ending with node 1.
+         * @param distance The length of the tour.
+         * @param trace The best distance after each iteration.
+         */
+        public Result(ArrayList<Integer> path, double distance, ArrayList<Double> trace) {
+            this.path = path;
+            this.distance = distance;
+            this.trace = trace;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Represents a hyperparameter sweep, which trains many colonies with different hyperparameters on one instance at the
+ * same time and ranks them by the length of their best tour. All colonies share one read-only distance store and
+ * candidate lists, and each of them keeps its own pheromone matrix. Three search modes are available:
+ * - grid tries every combination of the values in the constant arrays below,
+ * - random tries configurations drawn from the ranges below, and
+ * - halving draws random configurations, trains all of them for a few iterations, and keeps training only the better
+ *   half, doubling the iterations each round, until the survivors reach iterationCount iterations.
+ * The other hyperparameters, the candidate lists and the seed are the ones set in AliGur.setHyperParameters.
+ * <p>
+ * Usage: java Sweep instance.txt grid|random|halving [configurationCount] [workerCount]
+ */
+public class Sweep {
+    // Constants
+    private static final double[] ALPHAS = {0.5, 0.9, 1.5};        // Values of alpha tried by the grid search
+    private static final double[] BETAS = {2.0, 2.9, 4.0};         // Values of beta tried by the grid search
+    private static final double[] QS = {0.001, 0.01, 0.1};         // Values of Q tried by the grid search
+    private static final double[] DEGRADATIONS = {0.3, 0.5, 0.7};  // Values of degradationFactor tried by the grid search
+    private static final int[] ANT_COUNTS = {20, 50};              // Values of antCount tried by the grid search
+    private static final double MIN_ALPHA = 0.5, MAX_ALPHA = 2.0;  // Range of alpha drawn by the random searches
+    private static final double MIN_BETA = 1.0, MAX_BETA = 5.0;    // Range of beta drawn by the random searches
+    private static final double MIN_Q = 0.001, MAX_Q = 0.1;        // Range of Q drawn by the random searches, on a log scale
+    private static final double MIN_DEGRADATION = 0.1, MAX_DEGRADATION = 0.9; // Range of degradationFactor drawn by the random searches
+    private static final int MIN_ANTS = 10, MAX_ANTS = 100;        // Range of antCount drawn by the random searches
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean(); // Source of the CPU time of a thread
+
+    // Instance variables
+    private final ArrayList<double[]> coordinates;     // Coordinates of the nodes
+    private final DistanceStore distances;             // Distances shared by all colonies, in the store chosen in AliGur
+    private final int[][] candidateLists;              // Candidate lists shared by all colonies, or null
+    private final ExecutorService pool;                // Worker threads that train the colonies
+    private final ArrayList<Trial> trials = new ArrayList<>(); // Configurations of the sweep
+    private final long firstSeed;                      // Seed of the first configuration's colony
+
+    // Public constructor
+    /**
+     * Constructs a new Sweep over an instance, with the hyperparameters of AliGur as the base of every configuration.
+     *
+     * @param coordinates The coordinates of the nodes.
+     * @param workerCount The number of colonies trained at the same time.
+     */
+    public Sweep(ArrayList<double[]> coordinates, int workerCount) {
+        this.coordinates = coordinates;
+        this.distances = AliGur.createDistanceStore(coordinates, AliGur.chosenDistanceStore);
+        this.candidateLists = AliGur.candidateCount > 0 ? AliGur.findNearestNeighbours(coordinates, AliGur.candidateCount) : null;
+        this.pool = Executors.newFixedThreadPool(workerCount);
+        this.firstSeed = AliGur.seed != 0 ? AliGur.seed : System.nanoTime();
+    }
+
+    // Public methods
+    /**
+     * Reads the arguments, runs the sweep and prints the ranked configurations.
+     *
+     * @param args The instance file, the search mode, and optionally the number of configurations and of worker threads.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: java Sweep instance.txt grid|random|halving [configurationCount] [workerCount]");
+        }
+        int configurationCount = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int workerCount = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        AliGur.setHyperParameters();
+        Sweep sweep = new Sweep(AliGur.readCoordinates(args[0]), workerCount);
+        try {
+            if (args[1].equals("grid")) {
+                sweep.grid();
+            } else if (args[1].equals("random")) {
+                sweep.random(configurationCount);
+            } else if (args[1].equals("halving")) {
+                sweep.halving(configurationCount);
+            } else {
+                throw new IllegalArgumentException("Unknown search mode " + args[1]);
+            }
+        } finally {
+            sweep.shutdown();
+        }
+        sweep.printRanking();
+    }
+
+    /**
+     * Trains one colony for every combination of the grid values for iterationCount iterations.
+     */
+    public void grid() {
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double q : QS) {
+                    for (double degradation : DEGRADATIONS) {
+                        for (int ants : ANT_COUNTS) {
+                            addTrial(alpha, beta, q, degradation, ants);
+                        }
+                    }
+                }
+            }
+        }
+        train(trials, AliGur.iterationCount, true);
+    }
+
+    /**
+     * Trains one colony for each of the given number of random configurations for iterationCount iterations.
+     *
+     * @param configurationCount The number of configurations.
+     */
+    public void random(int configurationCount) {
+        addRandomTrials(configurationCount);
+        train(trials, AliGur.iterationCount, true);
+    }
+
+    /**
+     * Runs successive halving over the given number of random configurations.
+     * Every round trains the remaining colonies further, then stops the worse half of them. The number of iterations
+     * doubles each round, so that the last survivors have run iterationCount iterations. Colonies continue from their
+     * pheromone matrix instead of starting over.
+     *
+     * @param configurationCount The number of configurations in the first round.
+     */
+    public void halving(int configurationCount) {
+        addRandomTrials(configurationCount);
+        int rounds = 0;
+        while ((1 << (rounds + 1)) <= configurationCount) {
+            rounds++; // Number of times the configurations can be halved
+        }
+
+        ArrayList<Trial> remaining = new ArrayList<>(trials);
+        for (int round = 0; round <= rounds; round++) {
+            int iterations = Math.max(1, AliGur.iterationCount >> (rounds - round));
+            train(remaining, iterations, round == rounds);
+            if (round < rounds) {
+                // Stop the worse half
+                remaining.sort(Comparator.comparingDouble(trial -> trial.colony.bestDistance));
+                ArrayList<Trial> stopped = new ArrayList<>(remaining.subList(remaining.size() / 2, remaining.size()));
+                remaining.subList(remaining.size() / 2, remaining.size()).clear();
+                finish(stopped);
+            }
+        }
+    }
+
+    /**
+     * Prints the configurations ranked by the length of their best tour, with the iterations and the CPU time
+     * each of them used.
+     */
+    public void printRanking() {
+        trials.sort(Comparator.comparingDouble((Trial trial) -> trial.bestDistance).thenComparingLong(trial -> trial.cpuNanos));
+        System.out.printf("%4s %6s %6s %8s %11s %5s %10s %13s %10s%n",
+                "rank", "alpha", "beta", "Q", "degradation", "ants", "iterations", "best distance", "CPU ms");
+        for (int i = 0; i < trials.size(); i++) {
+            Trial trial = trials.get(i);
+            System.out.printf("%4d %6.3f %6.3f %8.5f %11.3f %5d %10d %13.5f %10.1f%n",
+                    i + 1, trial.alpha, trial.beta, trial.q, trial.degradation, trial.ants, trial.iterations,
+                    trial.bestDistance, trial.cpuNanos / 1e6);
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Adds the given number of configurations drawn from the random search ranges.
+     *
+     * @param configurationCount The number of configurations.
+     */
+    private void addRandomTrials(int configurationCount) {
+        Random random = new Random(firstSeed);
+        for (int i = 0; i < configurationCount; i++) {
+            double alpha = MIN_ALPHA + (MAX_ALPHA - MIN_ALPHA) * random.nextDouble();
+            double beta = MIN_BETA + (MAX_BETA - MIN_BETA) * random.nextDouble();
+            double q = MIN_Q * Math.pow(MAX_Q / MIN_Q, random.nextDouble());
+            double degradation = MIN_DEGRADATION + (MAX_DEGRADATION - MIN_DEGRADATION) * random.nextDouble();
+            int ants = MIN_ANTS + random.nextInt(MAX_ANTS - MIN_ANTS + 1);
+            addTrial(alpha, beta, q, degradation, ants);
+        }
+    }
+
+    /**
+     * Adds a configuration with a colony over the shared distances.
+     *
+     * @param alpha The influence of pheromone.
+     * @param beta The influence of distance.
+     * @param q The amount of pheromone deposited by each ant.
+     * @param degradation The evaporation factor.
+     * @param ants The number of ants.
+     */
+    private void addTrial(double alpha, double beta, double q, double degradation, int ants) {
+        Colony colony = AliGur.createColony(coordinates, distances, candidateLists, firstSeed + trials.size());
+        colony.alpha = alpha;
+        colony.beta = beta;
+        colony.Q = q;
+        colony.degradationFactor = degradation;
+        colony.antCount = ants;
+        colony.threadCount = 1; // The configurations already keep every worker thread busy
+        colony.metricsInterval = 0;
+        trials.add(new Trial(colony));
+    }
+
+    /**
+     * Trains the given configurations on the worker threads until each of them has run the given number of iterations.
+     * If they will not be trained any further, each colony is released as soon as it is done, so that only the
+     * colonies that are still training hold their matrices.
+     *
+     * @param selected The configurations to train.
+     * @param iterations The number of iterations each configuration has run afterwards.
+     * @param last Whether the configurations are finished after this training.
+     */
+    private void train(ArrayList<Trial> selected, int iterations, boolean last) {
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (Trial trial : selected) {
+            futures.add(pool.submit(() -> {
+                trial.trainUntil(iterations);
+                if (last) {
+                    trial.finish();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Records the results of the given configurations and releases their colonies.
+     *
+     * @param finished The configurations that will not be trained any further.
+     */
+    private void finish(ArrayList<Trial> finished) {
+        for (Trial trial : finished) {
+            trial.finish();
+        }
+    }
+
+    /**
+     * Represents one configuration of the sweep together with its colony.
+     */
+    private static class Trial {
+        // Instance variables
+        private final double alpha;        // Influence of pheromone
+        private final double beta;         // Influence of distance
+        private final double q;            // Amount of pheromone deposited by each ant
+        private final double degradation;  // Evaporation factor
+        private final int ants;            // Number of ants
+        private Colony colony;             // Colony of the configuration, or null once it is finished
+        private int iterations;            // Number of iterations run so far
+        private long cpuNanos;             // CPU time spent on training so far
+        private double bestDistance = Double.POSITIVE_INFINITY; // Length of the best tour, once finished
+
+        // Constructor
+        /**
+         * Constructs a new Trial for a colony whose hyperparameters are already set.
+         *
+         * @param colony The colony.
+         */
+        private Trial(Colony colony) {
+            this.colony = colony;
+            this.alpha = colony.alpha;
+            this.beta = colony.beta;
+            this.q = colony.Q;
+            this.degradation = colony.degradationFactor;
+            this.ants = colony.antCount;
+        }
+
+        /**
+         * Trains the colony until it has run the given number of iterations, starting it on the first call.
+         *
+         * @param target The number of iterations to reach.
+         */
+        private void trainUntil(int target) {
+            long start = THREADS.getCurrentThreadCpuTime();
+            if (iterations == 0) {
+                colony.start();
+            }
+            while (iterations < target) {
+                colony.iterate();
+                iterations++;
+            }
+            cpuNanos += THREADS.getCurrentThreadCpuTime() - start;
+        }
+
+        /**
+         * Records the best distance and releases the colony with its pheromone matrix.
+         */
+        private void finish() {
+            bestDistance = colony.bestDistance;
+            colony.close();
+            colony = null;
+        }
+    }
+}
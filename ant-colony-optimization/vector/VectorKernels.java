@@ -0,0 +1,228 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Represents the inner loops of a colony written with the incubating Vector API, which runs them on the widest
+ * SIMD registers of the processor. The visited nodes are masked out without a branch, by turning the bits of the
+ * visited bitset into a lane mask, and the running sums are computed with a parallel prefix sum inside each vector.
+ * The running sums are added in a different order than by the scalar loop, so they can differ in the last bits.
+ * <p>
+ * The class needs the jdk.incubator.vector module, so it lives apart from the other sources and is only used if it is
+ * on the class path:
+ * javac --add-modules jdk.incubator.vector -cp src -d vector vector/VectorKernels.java
+ * java --add-modules jdk.incubator.vector -cp src:vector AliGur
+ */
+public class VectorKernels extends Kernels {
+    // Constants
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONG_SPECIES = SPECIES.withLanes(long.class);
+    private static final int LANES = SPECIES.length(); // At most 8, so a vector never spans two words of a bitset
+    private static final LongVector LANE_INDEX = LongVector.zero(LONG_SPECIES).addIndex(1); // Index of each lane
+    private static final VectorShuffle<Double> LAST = VectorShuffle.fromOp(SPECIES, i -> LANES - 1); // Copies the last lane
+    private static final VectorShuffle<Double>[] SHIFTS = shifts();  // Move lane i - 2^s to lane i in step s of the prefix sum
+    private static final LongVector[] SHIFTED = shifted();           // All bits in the lanes that receive a sum in step s of the prefix sum
+    private static final long MANTISSA_BITS = 0x000FFFFFFFFFFFFFL;  // Bits of the mantissa of a double
+    private static final long ONE_BITS = 0x3FF0000000000000L;       // Bits of 1.0
+    private static final long EXPONENT_MAGIC = 0x4330000000000000L; // Bits of 2^52, whose mantissa holds an integer
+    private static final double ROUND_MAGIC = 0x1.8p52;             // Number whose addition rounds to an integer
+    private static final long ROUND_MAGIC_BITS = Double.doubleToRawLongBits(ROUND_MAGIC);
+    private static final double SQRT2 = Math.sqrt(2);
+    private static final double LN2 = Math.log(2);
+    private static final double LN2_HI = 6.93147180369123816490e-01; // ln(2) with its last bits cleared, so k * LN2_HI is exact
+    private static final double LN2_LO = 1.90821492927058770002e-10; // Rest of ln(2)
+
+    // Public methods
+    @Override
+    public double cumulativeWeights(double[] choiceInfo, long[] visited, double[] cumulativeWeights) {
+        int bound = SPECIES.loopBound(choiceInfo.length);
+        DoubleVector carry = DoubleVector.zero(SPECIES); // Sum of all earlier weights in every lane
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            // Keep the weights of the unvisited nodes by clearing all bits of the lanes whose bit in the bitset is 1
+            long bits = visited[i >>> 6] >>> (i & 63);
+            LongVector unvisited = LongVector.broadcast(LONG_SPECIES, bits).lanewise(VectorOperators.LSHR, LANE_INDEX)
+                    .and(1).sub(1); // All bits set for an unvisited node, none for a visited one
+            DoubleVector sums = doubles(bits(DoubleVector.fromArray(SPECIES, choiceInfo, i)).and(unvisited));
+
+            // Add each lane to the lanes above it, doubling the distance in every step
+            for (int s = 0; s < SHIFTS.length; s++) {
+                sums = sums.add(doubles(bits(sums.rearrange(SHIFTS[s])).and(SHIFTED[s])));
+            }
+            sums = sums.add(carry);
+            sums.intoArray(cumulativeWeights, i);
+            carry = sums.rearrange(LAST);
+        }
+
+        double sum = i > 0 ? cumulativeWeights[i - 1] : 0;
+        for (; i < choiceInfo.length; i++) {
+            if ((visited[i >>> 6] & (1L << i)) == 0) {
+                sum += choiceInfo[i];
+            }
+            cumulativeWeights[i] = sum;
+        }
+        return sum;
+    }
+
+    @Override
+    public void choiceInfo(double[] pheromone, double[] heuristic, double[] choiceInfo, double alpha, boolean fast) {
+        // Keep the two loops apart, so that the JIT compiles each of them into vector instructions
+        if (fast) {
+            fastChoiceInfo(pheromone, heuristic, choiceInfo, alpha);
+        } else {
+            exactChoiceInfo(pheromone, heuristic, choiceInfo, alpha);
+        }
+    }
+
+    @Override
+    public void scale(double[] row, double factor) {
+        int bound = SPECIES.loopBound(row.length);
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            DoubleVector.fromArray(SPECIES, row, j).mul(factor).intoArray(row, j);
+        }
+        for (; j < row.length; j++) {
+            row[j] *= factor;
+        }
+    }
+
+    /**
+     * Refreshes a row of the choice-info matrix with the power of the Vector API, which is as accurate as Math.pow.
+     *
+     * @param pheromone The pheromone row.
+     * @param heuristic The heuristic row.
+     * @param choiceInfo The choice-info row that receives the result.
+     * @param alpha The influence of pheromone.
+     */
+    private void exactChoiceInfo(double[] pheromone, double[] heuristic, double[] choiceInfo, double alpha) {
+        int bound = SPECIES.loopBound(choiceInfo.length);
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            DoubleVector power = DoubleVector.fromArray(SPECIES, pheromone, j).pow(alpha);
+            power.mul(DoubleVector.fromArray(SPECIES, heuristic, j)).intoArray(choiceInfo, j);
+        }
+        super.choiceInfo(pheromone, heuristic, choiceInfo, alpha, false, j, choiceInfo.length);
+    }
+
+    /**
+     * Refreshes a row of the choice-info matrix with the fast power.
+     *
+     * @param pheromone The pheromone row.
+     * @param heuristic The heuristic row.
+     * @param choiceInfo The choice-info row that receives the result.
+     * @param alpha The influence of pheromone.
+     */
+    private void fastChoiceInfo(double[] pheromone, double[] heuristic, double[] choiceInfo, double alpha) {
+        int bound = SPECIES.loopBound(choiceInfo.length);
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            DoubleVector power = fastPow(DoubleVector.fromArray(SPECIES, pheromone, j), alpha);
+            if (power == null) {
+                // Some lanes are outside the range of the fast power, so leave this vector to the scalar loop
+                super.choiceInfo(pheromone, heuristic, choiceInfo, alpha, true, j, j + LANES);
+                continue;
+            }
+            power.mul(DoubleVector.fromArray(SPECIES, heuristic, j)).intoArray(choiceInfo, j);
+        }
+        super.choiceInfo(pheromone, heuristic, choiceInfo, alpha, true, j, choiceInfo.length);
+    }
+
+    /**
+     * Calculates x^y in every lane with the same steps as Kernels.fastPow, so both give the same results.
+     *
+     * @param x The bases.
+     * @param y The exponent.
+     * @return The powers, or null if a lane is not a positive normal number or its power is not a normal number.
+     */
+    private static DoubleVector fastPow(DoubleVector x, double y) {
+        // Split x into 2^e * m with m between sqrt(1/2) and sqrt(2)
+        LongVector bits = bits(x);
+        DoubleVector e = doubles(bits.lanewise(VectorOperators.LSHR, 52).or(EXPONENT_MAGIC)).sub(0x1p52 + 1023);
+        DoubleVector m = doubles(bits.and(MANTISSA_BITS).or(ONE_BITS));
+        VectorMask<Double> high = m.compare(VectorOperators.GT, SQRT2);
+        m = m.blend(m.mul(0.5), high);
+        e = e.blend(e.add(1), high);
+
+        // ln(m) = 2 * atanh(s), from the first six terms of its series
+        DoubleVector s = m.sub(1).div(m.add(1));
+        DoubleVector s2 = s.mul(s);
+        DoubleVector logM = s2.mul(1.0 / 11).add(1.0 / 9).mul(s2).add(1.0 / 7).mul(s2).add(1.0 / 5).mul(s2)
+                .add(1.0 / 3).mul(s2).add(1).mul(s).mul(2);
+        DoubleVector t = e.mul(LN2).add(logM).mul(y); // ln(x^y)
+
+        VectorMask<Double> valid = x.compare(VectorOperators.GE, Double.MIN_NORMAL)
+                .and(x.compare(VectorOperators.LE, Double.MAX_VALUE))
+                .and(t.compare(VectorOperators.GE, -708))
+                .and(t.compare(VectorOperators.LE, 709));
+        if (!valid.allTrue()) {
+            return null;
+        }
+
+        // e^t = 2^k * e^r, from the first nine terms of its series
+        DoubleVector rounded = t.mul(1 / LN2).add(ROUND_MAGIC); // k in the low bits of the mantissa
+        DoubleVector k = rounded.sub(ROUND_MAGIC);
+        DoubleVector r = t.sub(k.mul(LN2_HI)).sub(k.mul(LN2_LO));
+        DoubleVector expR = r.mul(1.0 / 40320).add(1.0 / 5040).mul(r).add(1.0 / 720).mul(r).add(1.0 / 120).mul(r)
+                .add(1.0 / 24).mul(r).add(1.0 / 6).mul(r).add(1.0 / 2).mul(r).add(1).mul(r).add(1);
+        DoubleVector twoToK = doubles(bits(rounded).sub(ROUND_MAGIC_BITS - 1023).lanewise(VectorOperators.LSHL, 52));
+        return expR.mul(twoToK);
+    }
+
+    /**
+     * Returns the bits of the lanes of a vector of doubles. The species is given explicitly, which lets the JIT
+     * compile the conversion into no instruction at all.
+     *
+     * @param vector The vector.
+     * @return The bits of each lane.
+     */
+    private static LongVector bits(DoubleVector vector) {
+        return (LongVector) vector.reinterpretShape(LONG_SPECIES, 0);
+    }
+
+    /**
+     * Returns the doubles whose bits are the lanes of a vector of longs.
+     *
+     * @param vector The vector.
+     * @return The double of each lane.
+     */
+    private static DoubleVector doubles(LongVector vector) {
+        return (DoubleVector) vector.reinterpretShape(SPECIES, 0);
+    }
+
+    /**
+     * Creates the shuffles of the prefix sum, which move every lane up by 1, 2, 4 and so on.
+     *
+     * @return One shuffle per step of the prefix sum.
+     */
+    @SuppressWarnings("unchecked")
+    private static VectorShuffle<Double>[] shifts() {
+        int steps = Integer.numberOfTrailingZeros(LANES);
+        VectorShuffle<Double>[] shifts = (VectorShuffle<Double>[]) new VectorShuffle<?>[steps];
+        for (int s = 0; s < steps; s++) {
+            int distance = 1 << s;
+            shifts[s] = VectorShuffle.fromOp(SPECIES, i -> Math.max(i - distance, 0));
+        }
+        return shifts;
+    }
+
+    /**
+     * Creates the masks of the prefix sum, which keep the lanes that have a lane 1, 2, 4 and so on below them.
+     *
+     * @return One mask per step of the prefix sum, with all bits set in the kept lanes.
+     */
+    private static LongVector[] shifted() {
+        int steps = Integer.numberOfTrailingZeros(LANES);
+        LongVector[] masks = new LongVector[steps];
+        for (int s = 0; s < steps; s++) {
+            long[] lanes = new long[LANES];
+            for (int i = 1 << s; i < LANES; i++) {
+                lanes[i] = -1L;
+            }
+            masks[s] = LongVector.fromArray(LONG_SPECIES, lanes, 0);
+        }
+        return masks;
+    }
+}
@@ -7,6 +7,9 @@ import java.awt.*;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
 import java.util.Scanner;
 
 public class AliGur {
@@ -14,13 +17,16 @@ public class AliGur {
     public static double height = 1055;
     public static ArrayList<City> cities = new ArrayList<>();
     public static City startingCity = null, destinationCity = null;
+    public static int[] predecessor; // Index of the city before each city on its shortest path from the starting city, or -1
+    public static int tourMethod = 2; // Solver of round trips (2 for ant colony optimization, 3 for Held-Karp dynamic programming, 4 for branch and bound)
 
     /**
      * The main method for running the navigation system.
      * It loads data, displays the map, prompts the user to enter starting and destination cities,
      * performs Dijkstra's algorithm to find the shortest path, and displays the navigation path on the map.
+     * If cities are given on the command line, it plans the shortest round trip through them instead.
      *
-     * @param args The command-line arguments (not used in this application).
+     * @param args The names of the cities to visit on a round trip, or none to navigate between two cities.
      */
     public static void main(String[] args) {
         // Load data from files
@@ -29,6 +35,12 @@ public class AliGur {
         // Display the map
         showMap();
 
+        if (args.length > 0) {
+            // Plan a round trip through the cities given on the command line
+            planTour(args);
+            return;
+        }
+
         // Prompt the user to enter the starting city
         askStartingCity();
 
@@ -59,7 +71,8 @@ public class AliGur {
                 String[] parts = line.split(",");
                 // Create a new City object with the parsed coordinates
                 City city = new City(parts[0], Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
-                // Add the City object to the 'cities' ArrayList
+                // Add the City object to the 'cities' ArrayList, remembering its position
+                city.index = cities.size();
                 cities.add(city);
             }
         } catch (FileNotFoundException e) {
@@ -216,98 +229,200 @@ public class AliGur {
 
     /**
      * Implements Dijkstra's algorithm to find the shortest path from the starting city to the destination city.
-     * Updates the distance and path of each city based on the shortest path found.
+     * Updates the distance of each city and its predecessor on the shortest path found.
+     * Only the predecessors are kept, and the path itself is rebuilt once by navigationPath().
      */
     private static void dijkstra() {
-        // Initialize variables for current and next cities
-        City currentCity;
-        City nextCity;
+        double[] distance = new double[cities.size()];
+        predecessor = new int[cities.size()];
+        dijkstra(startingCity, destinationCity, distance, predecessor);
 
-        // Set the distance of the starting city to 0 and add it to the path
-        startingCity.distance = 0;
-        startingCity.path.add(startingCity);
-        currentCity = startingCity;
+        // Copy the distances into the cities
+        for (City city : cities) {
+            city.distance = distance[city.index];
+        }
+    }
 
-        // Main loop of Dijkstra's algorithm
-        while (true) {
-            // Mark the current city as visited
-            currentCity.visited = true;
+    /**
+     * Runs Dijkstra's algorithm from a source city, which both the navigation and the tour planner use.
+     * Only the given arrays are written and the cities are only read, so several runs can take place at the same time
+     * on different threads.
+     * The unvisited cities that have been reached are kept in a priority queue, so each step takes O(log V) time
+     * instead of a scan over all cities. A city whose distance is lowered is added again instead of being moved,
+     * and its outdated entries are skipped when they come out of the queue.
+     *
+     * @param source The city the paths start from.
+     * @param target The city at which the search stops once it is visited, or null to reach every city.
+     * @param distance Filled with the distance of each city from the source, or infinity if it is not reached.
+     * @param predecessor Filled with the index of the city before each city on its shortest path, or -1.
+     */
+    public static void dijkstra(City source, City target, double[] distance, int[] predecessor) {
+        // No city has been visited or reached yet
+        boolean[] visited = new boolean[cities.size()];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
 
-            // Update distances of neighbors of the current city
-            updateNeighbourDistances(currentCity);
+        // Cities waiting to be visited, as {distance, index} entries with the shortest distance first
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
 
-            // Find the next unvisited city with the shortest distance
-            nextCity = findNextCity();
+        // Set the distance of the source city to 0
+        distance[source.index] = 0;
+        queue.add(new double[]{0, source.index});
 
-            // If the next city is the destination or no more unvisited cities, exit the loop
-            if (nextCity == destinationCity || nextCity == null) {
+        // Main loop of Dijkstra's algorithm
+        while (!queue.isEmpty()) {
+            // Take the unvisited city with the shortest distance
+            City currentCity = cities.get((int) queue.poll()[1]);
+            if (visited[currentCity.index]) {
+                continue; // An outdated entry of a city that was already visited
+            }
+
+            // Mark the current city as visited
+            visited[currentCity.index] = true;
+
+            // Once the target is visited its distance is final, so exit the loop
+            if (currentCity == target) {
                 break;
-            } else {
-                // Move to the next city
-                currentCity = nextCity;
             }
+
+            // Update distances of neighbors of the current city
+            updateNeighbourDistances(currentCity, distance, predecessor, queue);
         }
     }
 
     /**
-     * Updates the distances and paths of neighboring cities based on the current city.
+     * Updates the distances and predecessors of neighboring cities based on the current city.
      * Calculates the distance from the current city to each neighboring city,
-     * updates their distances and paths if a shorter path is found.
+     * updates their distances and predecessors if a shorter path is found, and adds them to the queue with their new
+     * distance.
      *
-     * @param currentCity The current city whose neighbors' distances and paths are being updated.
+     * @param currentCity The current city whose neighbors' distances and predecessors are being updated.
+     * @param distance The distance of each city from the source.
+     * @param predecessor The index of the city before each city on its shortest path.
+     * @param queue The queue of cities waiting to be visited, as {distance, index} entries.
      */
-    public static void updateNeighbourDistances(City currentCity) {
+    public static void updateNeighbourDistances(City currentCity, double[] distance, int[] predecessor,
+                                                PriorityQueue<double[]> queue) {
         // Variable to store the current distance from the current city
         double currentDistance;
 
         // Iterate through each neighbor of the current city
         for (City city : currentCity.neighbors) {
             // Calculate the distance from the current city to the neighbor and add it to the current city's distance
-            currentDistance = city.calculateDistance(currentCity) + currentCity.distance;
+            currentDistance = city.calculateDistance(currentCity) + distance[currentCity.index];
 
             // If the calculated distance is shorter than the neighbor's current distance, update it
-            if (currentDistance < city.distance) {
+            if (currentDistance < distance[city.index]) {
                 // Update the neighbor's distance
-                city.distance = currentDistance;
-                // Update the neighbor's path by copying the current city's path and adding the neighbor
-                city.path = new ArrayList<>(currentCity.path);
-                city.path.add(city);
+                distance[city.index] = currentDistance;
+                // The shortest path to the neighbor now goes through the current city
+                predecessor[city.index] = currentCity.index;
+                // Queue the neighbor with its new distance
+                queue.add(new double[]{currentDistance, city.index});
             }
         }
     }
 
     /**
-     * Finds the next unvisited city with the shortest distance from the starting city.
-     * Iterates through all cities, excluding visited ones, and returns the city with the shortest distance.
+     * Plans the shortest round trip over the roads through the given cities, starting and ending at the first one,
+     * and displays it on the map. The cities can also be given as one comma-separated argument.
+     * Unknown names are reported and skipped, and a city that is given twice is visited once.
      *
-     * @return The next unvisited city with the shortest distance, or null if all cities are visited.
+     * @param names The names of the cities to visit.
      */
-    public static City findNextCity() {
-        // Initialize variables to store the city with the shortest distance and its minimum distance
-        City minCity = null;
-        double minDist;
-        minDist = Double.POSITIVE_INFINITY;
-
-        // Iterate through each city in the 'cities' ArrayList
-        for (City city : cities) {
-            // Skip visited cities
-            if (city.visited) {
-                continue;
+    private static void planTour(String[] names) {
+        // Search for each named city in the 'cities' ArrayList
+        ArrayList<City> stops = new ArrayList<>();
+        for (String name : String.join(",", names).split(",")) {
+            City stop = null;
+            for (City city : cities) {
+                if (city.name.equalsIgnoreCase(name.trim()))
+                    stop = city;
             }
-            // Update the city with the shortest distance if found
-            if (city.distance < minDist) {
-                minDist = city.distance;
-                minCity = city;
+            if (stop == null) {
+                System.out.println("City named '" + name.trim() + "' not found. Skipping it.");
+            } else if (!stops.contains(stop)) {
+                stops.add(stop);
             }
         }
-        // Return the city with the shortest distance (or null if all cities are visited)
-        return minCity;
+        if (stops.isEmpty()) {
+            System.out.println("No city to visit.");
+            return;
+        }
+
+        // Find the road distances between the stops and the order of the stops, then expand it into a road path
+        TourPlanner planner = new TourPlanner(cities);
+        ArrayList<City> path;
+        try {
+            path = planner.plan(stops, tourMethod, Runtime.getRuntime().availableProcessors());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() + ". No tour could be found.");
+            return;
+        }
+        showTour(path, stops, planner);
+    }
+
+    /**
+     * Displays a round trip on the map and prints its total distance, the order of the stops and the full road path.
+     * The stops are drawn larger than the cities that the tour only passes through.
+     *
+     * @param path The road path of the tour, from the first stop back to it.
+     * @param stops The cities to visit.
+     * @param planner The planner that found the tour.
+     */
+    private static void showTour(ArrayList<City> path, ArrayList<City> stops, TourPlanner planner) {
+        // Draw the road path
+        StdDraw.setPenColor(StdDraw.BOOK_LIGHT_BLUE);
+        StdDraw.setPenRadius(0.005);
+        for (int i = 0; i + 1 < path.size(); i++) {
+            StdDraw.line(path.get(i).x, path.get(i).y, path.get(i + 1).x, path.get(i + 1).y);
+        }
+        for (City city : path) {
+            StdDraw.filledCircle(city.x, city.y, 5);
+        }
+
+        // Draw the stops with their names
+        for (City stop : stops) {
+            StdDraw.filledCircle(stop.x, stop.y, 9);
+            StdDraw.text(stop.x, stop.y + 20, stop.name);
+        }
+        StdDraw.show();
+
+        // Build the strings of the stops and of the road path
+        String stopString = stops.get(planner.stopOrder[0]).name;
+        for (int i = 1; i < planner.stopOrder.length; i++) {
+            stopString += " -> " + stops.get(planner.stopOrder[i]).name;
+        }
+        String pathString = path.get(0).name;
+        for (int i = 1; i < path.size(); i++) {
+            pathString += " -> " + path.get(i).name;
+        }
+
+        // Print the total distance, the stops and the path
+        System.out.printf("Total distance: %.2f. " + "Stops: " + stopString + "\n", planner.tourDistance);
+        System.out.println("Path: " + pathString);
+    }
+
+    /**
+     * Rebuilds the shortest path from the starting city to the destination city by following the predecessors
+     * back from the destination.
+     *
+     * @return The cities of the path, from the starting city to the destination city.
+     */
+    public static ArrayList<City> navigationPath() {
+        ArrayList<City> path = new ArrayList<>();
+        for (int city = destinationCity.index; city != -1; city = predecessor[city]) {
+            path.add(cities.get(city));
+        }
+        Collections.reverse(path); // The walk went from the destination back to the start
+        return path;
     }
 
     /**
      * Displays the navigation path from the starting city to the destination city.
      * Draws the path on the map using StdDraw library and prints the total distance and path string.
      * If no path could be found to the destination city, prints an appropriate message.
+     * The path is rebuilt once from the predecessors found by Dijkstra's algorithm.
      */
     public static void showNavigation() {
         // Set pen color
@@ -318,29 +433,30 @@ public class AliGur {
             // If no path could be found, print a message
             System.out.println("No path could be found.");
         } else {
-            // If a path exists, initialize variables for previous city and path string
-            City previousCity = destinationCity.path.get(0);
+            // If a path exists, rebuild it and initialize variables for previous city and path string
+            ArrayList<City> path = navigationPath();
+            City previousCity = path.get(0);
             String pathString = "";
 
             // Iterate through each city in the path
-            for (int i = 0; i < destinationCity.path.size(); i++) {
+            for (int i = 0; i < path.size(); i++) {
                 if (i == 0) {
                     // For the first city in the path, draw a filled circle and display its name
                     StdDraw.setPenRadius(0.005);
-                    StdDraw.filledCircle(destinationCity.path.get(0).x, destinationCity.path.get(0).y, 5);
-                    StdDraw.text(destinationCity.path.get(0).x, destinationCity.path.get(0).y + 20, destinationCity.path.get(0).name);
-                    pathString += destinationCity.path.get(0).name;
+                    StdDraw.filledCircle(path.get(0).x, path.get(0).y, 5);
+                    StdDraw.text(path.get(0).x, path.get(0).y + 20, path.get(0).name);
+                    pathString += path.get(0).name;
                     continue;
                 }
                 // Draw the city's name and a filled circle
-                StdDraw.text(destinationCity.path.get(i).x, destinationCity.path.get(i).y + 20, destinationCity.path.get(i).name);
-                StdDraw.filledCircle(destinationCity.path.get(i).x, destinationCity.path.get(i).y, 5);
+                StdDraw.text(path.get(i).x, path.get(i).y + 20, path.get(i).name);
+                StdDraw.filledCircle(path.get(i).x, path.get(i).y, 5);
                 // Draw a line from the previous city to the current city
-                StdDraw.line(previousCity.x, previousCity.y, destinationCity.path.get(i).x, destinationCity.path.get(i).y);
+                StdDraw.line(previousCity.x, previousCity.y, path.get(i).x, path.get(i).y);
                 // Add the city's name to the path string
-                pathString += " -> " + destinationCity.path.get(i).name;
+                pathString += " -> " + path.get(i).name;
                 // Update the previous city
-                previousCity = destinationCity.path.get(i);
+                previousCity = path.get(i);
             }
 
             // Show the drawn map
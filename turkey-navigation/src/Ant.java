@@ -0,0 +1 @@
+../../ant-colony-optimization/src/Ant.java
\ No newline at end of file
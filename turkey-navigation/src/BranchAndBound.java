@@ -0,0 +1 @@
+../../ant-colony-optimization/src/BranchAndBound.java
\ No newline at end of file
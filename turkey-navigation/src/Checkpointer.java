@@ -0,0 +1 @@
+../../ant-colony-optimization/src/Checkpointer.java
\ No newline at end of file
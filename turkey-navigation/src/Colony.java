@@ -0,0 +1 @@
+../../ant-colony-optimization/src/Colony.java
\ No newline at end of file
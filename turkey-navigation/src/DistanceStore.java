@@ -0,0 +1 @@
+../../ant-colony-optimization/src/DistanceStore.java
\ No newline at end of file
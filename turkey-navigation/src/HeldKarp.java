@@ -0,0 +1 @@
+../../ant-colony-optimization/src/HeldKarp.java
\ No newline at end of file
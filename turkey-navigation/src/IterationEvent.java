@@ -0,0 +1 @@
+../../ant-colony-optimization/src/IterationEvent.java
\ No newline at end of file
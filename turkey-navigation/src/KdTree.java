@@ -0,0 +1 @@
+../../ant-colony-optimization/src/KdTree.java
\ No newline at end of file
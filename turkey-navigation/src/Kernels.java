@@ -0,0 +1 @@
+../../ant-colony-optimization/src/Kernels.java
\ No newline at end of file
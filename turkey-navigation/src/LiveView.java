@@ -0,0 +1 @@
+../../ant-colony-optimization/src/LiveView.java
\ No newline at end of file
@@ -0,0 +1 @@
+../../ant-colony-optimization/src/LocalSearch.java
\ No newline at end of file
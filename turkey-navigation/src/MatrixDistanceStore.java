@@ -0,0 +1 @@
+../../ant-colony-optimization/src/MatrixDistanceStore.java
\ No newline at end of file
@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Represents a planner of round trips that visit a set of cities over the road network.
+ * The road distance between every pair of stops is found with one run of AliGur.dijkstra per stop, and the runs are
+ * spread over a thread pool. The matrix of road distances is then handed to the solvers of ant-colony-optimization
+ * through a MatrixDistanceStore: the ant colony, Held-Karp or branch and bound. The tour they find is expanded into
+ * the full road path through the cities in between.
+ * <p>
+ * The solver classes in this directory are symbolic links to the sources of ant-colony-optimization, so both projects
+ * build from the same code, and this one still compiles on its own with javac src/*.java.
+ */
+public class TourPlanner {
+    // Constants
+    private static final int SEARCH_NEIGHBOURS = 10; // Number of nearest stops searched by the local search of the colony
+
+    // Instance variables
+    private final ArrayList<City> cities;            // Cities of the road network
+    private int[] stops;                             // Index of each stop in cities
+    private int[][] predecessors;                    // City before each city on the shortest path from each stop
+    public double[][] roadDistances;                 // Road distance between each pair of stops
+    public int[] stopOrder;                          // Stops in the order of the tour, ending with the first stop
+    public double tourDistance = Double.POSITIVE_INFINITY; // Road distance of the tour
+
+    // Public constructor
+    /**
+     * Constructs a new TourPlanner over the roads between the given cities.
+     *
+     * @param cities The cities, whose neighbors lists are the roads.
+     */
+    public TourPlanner(ArrayList<City> cities) {
+        this.cities = cities;
+    }
+
+    // Public methods
+    /**
+     * Finds the shortest round trip through the given stops, starting and ending at the first one.
+     *
+     * @param tourStops The cities to visit.
+     * @param method The solver (2 for ant colony optimization, 3 for Held-Karp, 4 for branch and bound).
+     * @param threadCount The number of threads that find the road distances and run the solver.
+     * @return The road path of the tour, from the first stop back to it, including the cities passed on the way.
+     * @throws IllegalArgumentException if a stop cannot be reached from another one, or if there are too many stops
+     *                                  for Held-Karp.
+     */
+    public ArrayList<City> plan(ArrayList<City> tourStops, int method, int threadCount) {
+        findRoadDistances(tourStops, threadCount);
+        if (stops.length == 1) {
+            stopOrder = new int[]{0, 0};
+            tourDistance = 0;
+        } else if (method == 3 || method == 4) {
+            solveExactly(method, threadCount);
+        } else {
+            solveWithColony(threadCount);
+        }
+        return roadPath();
+    }
+
+    /**
+     * Finds the road distance between every pair of stops, with one run of Dijkstra's algorithm per stop.
+     * The predecessors found by each run are kept, so that the tour can be expanded into a road path later.
+     *
+     * @param tourStops The cities to visit.
+     * @param threadCount The number of threads.
+     * @throws IllegalArgumentException if a stop cannot be reached from another one.
+     */
+    public void findRoadDistances(ArrayList<City> tourStops, int threadCount) {
+        int count = tourStops.size();
+        stops = new int[count];
+        for (int s = 0; s < count; s++) {
+            stops[s] = tourStops.get(s).index;
+        }
+        roadDistances = new double[count][count];
+        predecessors = new int[count][];
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, count)));
+        try {
+            ArrayList<Future<double[]>> runs = new ArrayList<>(count);
+            for (int s = 0; s < count; s++) {
+                City source = tourStops.get(s);
+                double[] distance = new double[cities.size()];
+                int[] predecessor = new int[cities.size()];
+                predecessors[s] = predecessor; // Each run fills arrays of its own
+                runs.add(pool.submit(() -> {
+                    AliGur.dijkstra(source, null, distance, predecessor);
+                    return distance;
+                }));
+            }
+            for (int s = 0; s < count; s++) {
+                double[] distance = runs.get(s).get();
+                for (int t = 0; t < count; t++) {
+                    roadDistances[s][t] = distance[stops[t]];
+                    if (distance[stops[t]] == Double.POSITIVE_INFINITY) {
+                        throw new IllegalArgumentException("There is no road from " + tourStops.get(s).name
+                                + " to " + tourStops.get(t).name);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Orders the stops with an exact solver, which finds the shortest tour.
+     *
+     * @param method The solver (3 for Held-Karp, 4 for branch and bound).
+     * @param threadCount The number of threads of branch and bound.
+     * @throws IllegalArgumentException if there are too many stops for Held-Karp.
+     */
+    private void solveExactly(int method, int threadCount) {
+        MatrixDistanceStore store = new MatrixDistanceStore(roadDistances);
+        ArrayList<Integer> bestPath;
+        if (method == 3) {
+            HeldKarp solver = new HeldKarp(store);
+            solver.solve();
+            bestPath = solver.bestPath;
+            tourDistance = solver.bestDistance;
+        } else {
+            BranchAndBound solver = new BranchAndBound(store);
+            solver.solve(threadCount);
+            bestPath = solver.bestPath;
+            tourDistance = solver.bestDistance;
+        }
+        stopOrder = new int[bestPath.size()];
+        for (int k = 0; k < stopOrder.length; k++) {
+            stopOrder[k] = bestPath.get(k) - 1; // The solvers number the nodes from 1
+        }
+    }
+
+    /**
+     * Orders the stops with ant colony optimization, improving the tours with 2-opt and Or-opt.
+     * The colony keeps the hyperparameters of ant-colony-optimization, which are tuned for tours over the unit square,
+     * so it works on the road distances divided by the longest one, which keeps the pheromone deposits in the same range.
+     *
+     * @param threadCount The number of threads.
+     */
+    private void solveWithColony(int threadCount) {
+        int count = stops.length;
+        double longest = 0;
+        for (double[] row : roadDistances) {
+            for (double distance : row) {
+                longest = Math.max(longest, distance);
+            }
+        }
+        double[][] scaled = new double[count][count];
+        for (int s = 0; s < count; s++) {
+            for (int t = 0; t < count; t++) {
+                scaled[s][t] = longest > 0 ? roadDistances[s][t] / longest : 0;
+            }
+        }
+
+        Colony colony = new Colony(new MatrixDistanceStore(scaled), null, System.nanoTime());
+        colony.threadCount = threadCount;
+        colony.localSearch = 2; // The tours are short enough to improve every iteration best with 2-opt and Or-opt
+        colony.searchNeighbours = nearestStops(Math.min(SEARCH_NEIGHBOURS, count - 1));
+        colony.train();
+
+        stopOrder = colony.bestTour.clone();
+        tourDistance = 0;
+        for (int k = 0; k + 1 < stopOrder.length; k++) {
+            tourDistance += roadDistances[stopOrder[k]][stopOrder[k + 1]];
+        }
+        rotateToFirstStop();
+    }
+
+    /**
+     * Finds the nearest stops of each stop by road distance, which the local search of the colony tries first.
+     *
+     * @param k The number of neighbours of each stop.
+     * @return The k nearest other stops of each stop, sorted by road distance.
+     */
+    private int[][] nearestStops(int k) {
+        int count = stops.length;
+        int[][] nearest = new int[count][];
+        for (int s = 0; s < count; s++) {
+            double[] row = roadDistances[s];
+            Integer[] others = new Integer[count - 1];
+            for (int t = 0, j = 0; t < count; t++) {
+                if (t != s) {
+                    others[j++] = t;
+                }
+            }
+            Arrays.sort(others, (a, b) -> Double.compare(row[a], row[b]));
+            nearest[s] = new int[k];
+            for (int j = 0; j < k; j++) {
+                nearest[s][j] = others[j];
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Rotates the closed tour so that it starts and ends at the first stop.
+     */
+    private void rotateToFirstStop() {
+        int count = stopOrder.length - 1;
+        int start = 0;
+        while (stopOrder[start] != 0) {
+            start++;
+        }
+        int[] rotated = new int[count + 1];
+        for (int k = 0; k <= count; k++) {
+            rotated[k] = stopOrder[(start + k) % count];
+        }
+        stopOrder = rotated;
+    }
+
+    /**
+     * Expands the tour into the road path through every city between consecutive stops.
+     *
+     * @return The cities of the road path, from the first stop back to it.
+     */
+    private ArrayList<City> roadPath() {
+        ArrayList<City> path = new ArrayList<>();
+        path.add(cities.get(stops[stopOrder[0]]));
+        for (int k = 0; k + 1 < stopOrder.length; k++) {
+            int from = stopOrder[k];
+            int[] predecessor = predecessors[from];
+
+            // Walk back from the next stop to this one, then add the cities in driving order
+            ArrayList<City> leg = new ArrayList<>();
+            for (int city = stops[stopOrder[k + 1]]; city != stops[from]; city = predecessor[city]) {
+                leg.add(cities.get(city));
+            }
+            for (int j = leg.size() - 1; j >= 0; j--) {
+                path.add(leg.get(j));
+            }
+        }
+        return path;
+    }
+}